@@ -1,17 +1,27 @@
 package algo;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
 import decision.*;
 import entity.*;
 import Instruction.*;
+import map.CellChangeListener;
 import map.GridMap;
 import map.Location;
 import physics.PhysicsEngine;
+import plugins.LazyPath;
+import event.EventQueue;
 import event.EventType;
+import event.HeapEventQueue;
 import event.SimEvent;
+import event.SimEventPool;
 import time.TimeEstimationModule;
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
-public class SimpleScheduler {
+public class SimpleScheduler implements CellChangeListener, Checkpointable {
     private final TaskAllocator taskAllocator;
     private final TrafficController trafficController;
     private final RoutePlanner routePlanner;
@@ -26,7 +36,34 @@ public class SimpleScheduler {
 
     private final Map<String, Entity> entities = new HashMap<>();
     private final Map<String, Instruction> instructions = new HashMap<>();
-    private final Queue<SimEvent> pendingEvents = new PriorityQueue<>();
+    private EventQueue pendingEvents = new HeapEventQueue();
+    // 调度器创建的事件均取自对象池，由引擎分发完毕后经 recycleEvent 归还
+    private final SimEventPool eventPool = new SimEventPool();
+
+    // 时空预约模式：非空时优先按预约规划，失败再回退到静态路径
+    private TimedRoutePlanner timedRoutePlanner;
+
+    // 决策批次：同一时刻集中派车 (初始化、新任务唤醒) 时先登记寻路请求，批次结束后统一求解
+    private record DeferredMove(Entity entity, Location target, Instruction inst, EntityStatus previousStatus) {}
+    private List<DeferredMove> deferredMoves;
+
+    // 增量重规划：剩余路径经过新封闭格子的设备，在下一步出发前修复路径
+    private IncrementalRoutePlanner incrementalRoutePlanner;
+    private LazyPath.SegmentSource segmentSource;
+    private final Set<String> replanRequired = new HashSet<>();
+
+    // 宏步移动：附近无竞争时一次占用前方连续多格，只调度一个到达事件；值为在途宏步占用的格子 (含终点)
+    private static final int MACRO_STEP_CLEARANCE = 1;
+    private int macroStepCells;
+    private boolean verbose = true;
+    private final Map<String, List<Location>> macroRuns = new HashMap<>();
+
+    // 分区并行分发：并发处理的事件产生的新事件先写入各自的收集列表，由引擎按全局顺序统一入队
+    private final ThreadLocal<List<SimEvent>> eventCapture = new ThreadLocal<>();
+    private volatile boolean concurrentDispatch;
+
+    // 列式状态表 (可选)：启用后按状态/按格子的扫描走连续数组，顺序为注册顺序
+    private EntityStateStore stateStore;
 
     public SimpleScheduler(TaskAllocator taskAllocator, TrafficController trafficController,
                            RoutePlanner routePlanner, TimeEstimationModule timeModule,
@@ -44,7 +81,9 @@ public class SimpleScheduler {
     }
 
     public void registerEntity(Entity entity) {
-        if (entity != null && entity.getId() != null) entities.put(entity.getId(), entity);
+        if (entity == null || entity.getId() == null) return;
+        entities.put(entity.getId(), entity);
+        if (stateStore != null) stateStore.add(entity);
     }
 
     public void addInstruction(Instruction task) {
@@ -54,7 +93,31 @@ public class SimpleScheduler {
         }
     }
 
+    public void setTimedRoutePlanner(TimedRoutePlanner timedRoutePlanner) { this.timedRoutePlanner = timedRoutePlanner; }
+
+    public void setIncrementalRoutePlanner(IncrementalRoutePlanner incrementalRoutePlanner) {
+        this.incrementalRoutePlanner = incrementalRoutePlanner;
+    }
+
+    /** 替换待处理事件队列实现，需在 init 之前设置 */
+    public void setEventQueue(EventQueue eventQueue) { this.pendingEvents = eventQueue; }
+
+    /** 单个宏步最多前进的格数，<= 1 表示逐格推进；时空预约模式下不启用 (预约按逐格步长计时) */
+    public void setMacroStepCells(int macroStepCells) { this.macroStepCells = macroStepCells; }
+
+    /** 关闭后不再打印任务生成/完成的过程日志 (重复实验时使用) */
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+
+    /** 需在注册实体之前设置 */
+    public void setEntityStateStore(EntityStateStore stateStore) { this.stateStore = stateStore; }
+
     public SimEvent getNextEvent() { return pendingEvents.poll(); }
+    public SimEvent peekNextEvent() { return pendingEvents.peek(); }
+
+    /** 归还已分发完毕的事件，调用后不得再持有该事件 (需保留的先 copy) */
+    public void recycleEvent(SimEvent event) { eventPool.release(event); }
+
+    public SimEventPool getEventPool() { return eventPool; }
 
     public void init() {
         // 1. 初始化物理位置
@@ -67,6 +130,7 @@ public class SimpleScheduler {
         }
 
         // 2. 根据设备当前状态（携带指令/位置）生成初始事件
+        beginDecisionBatch();
         for (Entity entity : entities.values()) {
             // 如果实体初始化时就绑定了任务（例如从文件加载的状态），立即触发决策
             if (entity.getCurrentInstructionId() != null) {
@@ -76,10 +140,11 @@ public class SimpleScheduler {
                 tryAssignment(0, entity);
             }
         }
+        flushDecisionBatch(0);
 
         // 3. 启动任务生成器事件
         if (taskGenerator != null) {
-            pendingEvents.add(new SimEvent(0, EventType.TASK_GENERATION, "SYSTEM"));
+            schedule(0, EventType.TASK_GENERATION, "SYSTEM", null);
         }
     }
 
@@ -124,14 +189,28 @@ public class SimpleScheduler {
     }
 
     private void startMove(long now, Entity entity, Location target, Instruction inst) {
-        List<Location> path = routePlanner.searchRoute(entity.getCurrentLocation(), target);
+        if (deferredMoves != null) {
+            // 先置为 MOVING，避免同一批次内被重复决策
+            deferredMoves.add(new DeferredMove(entity, target, inst, entity.getStatus()));
+            entity.setStatus(EntityStatus.MOVING);
+            return;
+        }
+        List<Location> path = planReserved(now, entity, target, inst);
+        if (path == null && incrementalRoutePlanner != null) {
+            path = incrementalRoutePlanner.openSession(entity.getId(), entity.getCurrentLocation(), target);
+        }
+        if (path == null) path = routePlanner.searchRoute(entity.getCurrentLocation(), target);
+        followPath(now, entity, target, inst, path);
+    }
+
+    private void followPath(long now, Entity entity, Location target, Instruction inst, List<Location> path) {
         if (path == null || path.isEmpty()) {
             if (entity.getCurrentLocation().equals(target)) {
                 handleArrivalLogic(now, entity, inst);
             } else {
                 // 等待后重试 (使用配置参数)
-                pendingEvents.add(new SimEvent(now + defaultWaitTime, EventType.MOVE_STEP,
-                        entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().toKey()));
+                schedule(now + defaultWaitTime, EventType.MOVE_STEP,
+                        entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().pack());
             }
             return;
         }
@@ -140,62 +219,467 @@ public class SimpleScheduler {
         processNextMoveStep(now, entity);
     }
 
+    // 时空预约规划依赖先后顺序 (后者避让前者的预约)，增量规划需逐车建立会话，二者均不参与批量求解
+    private void beginDecisionBatch() {
+        if (timedRoutePlanner == null && incrementalRoutePlanner == null) deferredMoves = new ArrayList<>();
+    }
+
+    private void flushDecisionBatch(long now) {
+        List<DeferredMove> moves = deferredMoves;
+        deferredMoves = null;
+        if (moves == null || moves.isEmpty()) return;
+
+        List<RouteQuery> queries = new ArrayList<>(moves.size());
+        for (DeferredMove m : moves) queries.add(new RouteQuery(m.entity().getCurrentLocation(), m.target()));
+        List<List<Location>> paths = routePlanner.searchRoutes(queries);
+        // 按登记顺序出发，与逐个决策时的加锁顺序一致
+        for (int i = 0; i < moves.size(); i++) {
+            DeferredMove m = moves.get(i);
+            m.entity().setStatus(m.previousStatus());
+            followPath(now, m.entity(), m.target(), m.inst(), paths.get(i));
+        }
+    }
+
     private void processNextMoveStep(long now, Entity entity) {
         // 1. 交通管制检查
         Instruction interrupt = trafficController.checkInterruption(entity);
         if (interrupt != null && interrupt.getType() == InstructionType.WAIT) {
-            pendingEvents.add(new SimEvent(now + interrupt.getExpectedDuration(), EventType.MOVE_STEP,
-                    entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().toKey()));
+            schedule(now + interrupt.getExpectedDuration(), EventType.MOVE_STEP,
+                    entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().pack());
             return;
         }
 
         // 2. 到达检测
         if (!entity.hasRemainingPath()) {
+            replanRequired.remove(entity.getId());
+            if (incrementalRoutePlanner != null) incrementalRoutePlanner.closeSession(entity.getId());
             triggerArrivalEvent(now, entity);
             return;
         }
 
-        Location next = entity.getRemainingPath().get(0);
+        // 地图变化后修复路径；暂时不可达则原地等待后重试
+        if (replanRequired.remove(entity.getId()) && !repairPath(entity)) {
+            replanRequired.add(entity.getId());
+            schedule(now + defaultWaitTime, EventType.MOVE_STEP,
+                    entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().pack());
+            return;
+        }
+
+        // 惰性路径的下一段在地图变化后无法展开：立即从当前位置修复一次，仍不行则原地等待后重试
+        Location next = peekNextStep(entity);
+        if (next == null && (!repairPath(entity) || (next = peekNextStep(entity)) == null)) {
+            replanRequired.add(entity.getId());
+            schedule(now + defaultWaitTime, EventType.MOVE_STEP,
+                    entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().pack());
+            return;
+        }
         Instruction inst = instructions.get(entity.getCurrentInstructionId());
-        Location goal = entity.getRemainingPath().get(entity.getRemainingPath().size() - 1);
+        Location goal = entity.getPathGoal();
+
+        // 预约路径中的原地等待：连续等待合并为一个事件
+        Location current = entity.getCurrentLocation();
+        if (next.equals(current)) {
+            int waits = 0;
+            while (entity.hasRemainingPath() && entity.peekNextStep().equals(current)) {
+                entity.popNextStep();
+                waits++;
+            }
+            long stepTime = timeModule.estimateMovementTime(entity, Collections.singletonList(current));
+            schedule(now + waits * stepTime, EventType.MOVE_STEP,
+                    entity.getId(), entity.getCurrentInstructionId(), current.pack());
+            return;
+        }
 
         // 3. 碰撞检测
         if (physicsEngine.detectCollision(next, entity.getId(), inst, goal)) {
             String occupier = physicsEngine.getOccupier(next);
             // 如果不是协同伙伴，则等待
             if (!isCooperativeMove(entity, occupier)) {
+                // 预约模式下先尝试从当前位置重新规划
+                if (replanReserved(now, entity, goal, inst)) return;
                 Instruction resolution = trafficController.resolveCollision(entity, occupier);
                 long waitTime = (resolution != null) ? resolution.getExpectedDuration() : defaultWaitTime;
-                pendingEvents.add(new SimEvent(now + waitTime, EventType.MOVE_STEP,
-                        entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().toKey()));
+                schedule(now + waitTime, EventType.MOVE_STEP,
+                        entity.getId(), entity.getCurrentInstructionId(), entity.getCurrentLocation().pack());
                 return;
             }
         }
 
         // 4. 执行移动
+        if (tryMacroStep(now, entity)) return;
         Location stepTarget = entity.popNextStep();
         physicsEngine.lockResources(entity.getId(), Collections.singletonList(stepTarget));
         long stepTime = timeModule.estimateMovementTime(entity, Collections.singletonList(stepTarget));
 
-        pendingEvents.add(new SimEvent(now + stepTime, EventType.MOVE_STEP,
-                entity.getId(), entity.getCurrentInstructionId(), stepTarget.toKey()));
+        schedule(now + stepTime, EventType.MOVE_STEP,
+                entity.getId(), entity.getCurrentInstructionId(), stepTarget.pack());
     }
 
-    public void handleStepArrival(long now, String eid, String posKey) {
+    // 下一格；路径的下一段已无法展开 (RouteUnavailableException) 时返回 null
+    private static Location peekNextStep(Entity entity) {
+        try {
+            return entity.peekNextStep();
+        } catch (RouteUnavailableException e) {
+            return null;
+        }
+    }
+
+    public void handleStepArrival(long now, String eid, long packedPosition) {
         Entity entity = entities.get(eid);
-        Location target = Location.parse(posKey);
+        Location target = gridMap.location(Location.unpackX(packedPosition), Location.unpackY(packedPosition));
         Location old = entity.getCurrentLocation();
         if (old != null && !old.equals(target)) {
             physicsEngine.unlockSingleResource(eid, old);
         }
+        List<Location> run = macroRuns.remove(eid);
+        if (run != null) {
+            for (int i = 0; i < run.size() - 1; i++) physicsEngine.unlockSingleResource(eid, run.get(i));
+        }
         entity.setCurrentLocation(target);
+        if (timedRoutePlanner != null) timedRoutePlanner.onProgress(eid, now);
+        processNextMoveStep(now, entity);
+    }
+
+    // --- 检查点 ---
+
+    public Instruction getInstruction(String instructionId) { return instructions.get(instructionId); }
+
+    /** 参与检查点的全部组件：调度器自身 (须排在首位，其余组件恢复时引用其指令表)、物理引擎及支持检查点的插件 */
+    public List<Checkpointable> getCheckpointables() {
+        List<Checkpointable> list = new ArrayList<>();
+        list.add(this);
+        list.add(physicsEngine);
+        for (Object plugin : new Object[]{taskAllocator, trafficController, taskGenerator}) {
+            if (plugin instanceof Checkpointable c && !list.contains(c)) list.add(c);
+        }
+        return list;
+    }
+
+    @Override
+    public String checkpointKey() { return "scheduler"; }
+
+    /**
+     * 写出实体状态与路径、指令表、待处理事件、待重规划设备与在途宏步。须在两次事件分发之间调用。
+     * 待处理事件按出队顺序取出后原样放回 (重新分配的入队序号保持相对顺序)。
+     * 路径按原样写出：惰性路径未细化的段只写起讫格，不在写出时细化或修复，写检查点不改变运行状态。
+     * 路径缓存、增量规划会话等只影响求解速度的内部状态不写入，恢复后按需重建。
+     */
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeVarInt(entities.size());
+        Map<List<Location>, Integer> paths = new IdentityHashMap<>();
+        for (Entity e : entities.values()) {
+            out.writeString(e.getId());
+            e.writeState(out);
+            writePath(out, e, paths);
+        }
+        out.writeVarInt(instructions.size());
+        for (Instruction inst : instructions.values()) inst.writeTo(out);
+
+        List<SimEvent> events = new ArrayList<>(pendingEvents.size());
+        for (SimEvent e; (e = pendingEvents.poll()) != null; ) events.add(e);
+        out.writeVarInt(events.size());
+        for (SimEvent e : events) {
+            out.writeLong(e.getTimestamp());
+            out.writeString(e.getType().name());
+            out.writeString(e.getEntityId());
+            out.writeString(e.getInstructionId());
+            out.writeLong(e.getPackedTargetPosition());
+            pendingEvents.add(e);
+        }
+
+        out.writeVarInt(replanRequired.size());
+        for (String id : replanRequired) out.writeString(id);
+        out.writeVarInt(macroRuns.size());
+        for (Map.Entry<String, List<Location>> run : macroRuns.entrySet()) {
+            out.writeString(run.getKey());
+            out.writeVarInt(run.getValue().size());
+            for (Location loc : run.getValue()) out.writeLocation(loc);
+        }
+    }
+
+    /** 实体须已按同一配置注册；指令表与待处理事件整体替换 */
+    @Override
+    public void restoreState(CheckpointInput in, int version, Function<String, Instruction> lookup) throws IOException {
+        List<List<Location>> paths = new ArrayList<>();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String id = in.readString();
+            Entity e = entities.get(id);
+            if (e == null) throw new IOException("检查点中的设备未注册: " + id);
+            e.readState(in);
+            if (version >= 2) readPath(in, e, paths);
+            else e.setRemainingPath(readCells(in));
+        }
+        instructions.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            Instruction inst = Instruction.readFrom(in);
+            instructions.put(inst.getInstructionId(), inst);
+        }
+
+        pendingEvents.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            long ts = in.readLong();
+            EventType type = EventType.valueOf(in.readString());
+            String eid = in.readString();
+            String iid = in.readString();
+            pendingEvents.add(eventPool.obtain(ts, type, eid, iid, in.readLong()));
+        }
+
+        replanRequired.clear();
+        for (int i = in.readVarInt(); i > 0; i--) replanRequired.add(in.readString());
+        macroRuns.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String id = in.readString();
+            int n = in.readVarInt();
+            List<Location> run = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) run.add(in.readLocation());
+            macroRuns.put(id, run);
+        }
+    }
+
+    // 版本 2：路径按原样写出 (含惰性路径的段结构)，多个设备共享的路径只写一次
+    @Override
+    public int checkpointVersion() { return 2; }
+
+    /** 设置后，检查点中未细化的惰性路径段恢复时由它重建细化器；未设置时这些段在走到时按无法展开处理 */
+    public void setSegmentSource(LazyPath.SegmentSource segmentSource) { this.segmentSource = segmentSource; }
+
+    // 路径引用：0 为无路径，不超过已写出数为共享先前的路径，否则其后为新路径的内容
+    private void writePath(CheckpointOutput out, Entity e, Map<List<Location>, Integer> written) throws IOException {
+        List<Location> path = e.getHeldPath();
+        if (path.isEmpty()) {
+            out.writeVarInt(0);
+            return;
+        }
+        Integer ref = written.get(path);
+        out.writeVarInt(ref != null ? ref : written.size() + 1);
+        out.writeVarInt(e.getPathCursor());
+        out.writeLocation(e.hasRemainingPath() ? e.getPathGoal() : null);
+        if (ref != null) return;
+        written.put(path, written.size() + 1);
+        if (!(path instanceof LazyPath lazy)) {
+            out.writeBoolean(false);
+            out.writeVarInt(path.size());
+            for (Location loc : path) out.writeLong(loc.pack());
+            return;
+        }
+        out.writeBoolean(true);
+        out.writeVarInt(lazy.segmentCount());
+        for (int seg = 0; seg < lazy.segmentCount(); seg++) {
+            out.writeVarInt(lazy.segmentLength(seg));
+            int[] cells = lazy.refinedCells(seg);
+            int[] ends = (cells == null) ? lazy.segmentEndpoints(seg) : null;
+            // 细化结果与地图无关的段 (ends 为 null) 直接细化写出
+            if (cells == null && ends == null) cells = lazy.segmentCells(seg);
+            out.writeBoolean(cells != null);
+            if (cells != null) {
+                for (int c : cells) out.writeVarInt(c);
+            } else {
+                out.writeVarInt(ends[0]);
+                out.writeVarInt(ends[1]);
+            }
+        }
+    }
+
+    private void readPath(CheckpointInput in, Entity e, List<List<Location>> read) throws IOException {
+        int ref = in.readVarInt();
+        if (ref == 0) {
+            e.setRemainingPath(null);
+            return;
+        }
+        int cursor = in.readVarInt();
+        Location goal = in.readLocation();
+        List<Location> path;
+        if (ref <= read.size()) {
+            path = read.get(ref - 1);
+        } else {
+            path = in.readBoolean() ? readLazyPath(in) : readCells(in);
+            read.add(path);
+        }
+        e.restorePath(path, cursor, goal);
+    }
+
+    private List<Location> readCells(CheckpointInput in) throws IOException {
+        int n = in.readVarInt();
+        List<Location> path = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long packed = in.readLong();
+            path.add(new Location(Location.unpackX(packed), Location.unpackY(packed)));
+        }
+        return path;
+    }
+
+    private LazyPath readLazyPath(CheckpointInput in) throws IOException {
+        int n = in.readVarInt();
+        int[] lengths = new int[n], from = new int[n], to = new int[n];
+        int[][] refined = new int[n][];
+        for (int seg = 0; seg < n; seg++) {
+            lengths[seg] = in.readVarInt();
+            if (in.readBoolean()) {
+                refined[seg] = new int[lengths[seg]];
+                for (int k = 0; k < lengths[seg]; k++) refined[seg][k] = in.readVarInt();
+            } else {
+                from[seg] = in.readVarInt();
+                to[seg] = in.readVarInt();
+            }
+        }
+        LazyPath.SegmentRefiner refiner = (segmentSource != null)
+                ? segmentSource.refiner(from, to, lengths)
+                : seg -> { throw new RouteUnavailableException("检查点中的惰性路径段无法重建细化器"); };
+        return new LazyPath(gridMap, lengths, refiner, refined);
+    }
+
+    // --- 分区并行分发 ---
+
+    /**
+     * 该事件能否与其他区域内部的同类事件并发处理：仅限普通移动步 (非到达、非重规划、非预约/宏步模式)，
+     * 其处理只读写实体自身、目标格及前后一格的占用，以及只读的指令表。调用方还需保证目标格远离区域边界。
+     * 并发处理时交通管制插件须线程安全。
+     */
+    public boolean canDispatchConcurrently(SimEvent event) {
+        if (event.getType() != EventType.MOVE_STEP || !event.hasTargetPosition()) return false;
+        if (timedRoutePlanner != null || macroStepCells > 1) return false;
+        Entity entity = entities.get(event.getEntityId());
+        // 先在串行阶段展开下一格，并发阶段不会遇到无法展开的路段
+        return entity != null && entity.hasRemainingPath() && !replanRequired.contains(entity.getId())
+                && peekNextStep(entity) != null;
+    }
+
+    /** 并发处理移动步，新产生的事件写入 sink 而不是事件队列 */
+    public void dispatchConcurrently(SimEvent event, List<SimEvent> sink) {
+        eventCapture.set(sink);
+        try {
+            handleStepArrival(event.getTimestamp(), event.getEntityId(), event.getPackedTargetPosition());
+        } finally {
+            eventCapture.remove();
+        }
+    }
+
+    /** 进入/退出并发分发阶段，阶段内不得调用 recycleEvent 与其他 handle 方法 */
+    public void setConcurrentDispatch(boolean concurrentDispatch) { this.concurrentDispatch = concurrentDispatch; }
+
+    /** 将并发阶段收集的事件入队 (分配入队序号) */
+    public void enqueue(SimEvent event) { pendingEvents.add(event); }
+
+    /**
+     * 前瞻量：任一移动步处理后产生的新事件距当前时刻的最小间隔，即单格最短行驶时间与默认等待时间的较小者。
+     * 单格时间取以最大速度匀速驶过一格的时间 (与位置无关，任何加减速模型都不会更短)，
+     * 再与估算器对单格的估计取小，保证整个运行期间都是下界
+     */
+    public long getLookahead() {
+        long lookahead = defaultWaitTime;
+        List<Location> oneCell = Collections.singletonList(new Location(0, 0));
+        for (Entity e : entities.values()) {
+            if (e.getMaxSpeed() > 0) {
+                lookahead = Math.min(lookahead, (long) (gridMap.getCellSize() / e.getMaxSpeed() * 1000));
+            }
+            lookahead = Math.min(lookahead, timeModule.estimateMovementTime(e, oneCell));
+        }
+        return lookahead;
+    }
+
+    // --- 宏步移动 ---
+
+    /**
+     * 从下一格起取最长的无竞争连续段 (每格周围 MACRO_STEP_CLEARANCE 格内无他车)，整段加锁后按整段距离计时
+     * (PhysicsTimeEstimator 下为一次加减速的运动学时间)，到达段尾时统一释放途经格。段长不足 2 格时回退到逐格推进。
+     * 段内格子在整段行驶期间都被占用，段长上限过大时会让对向来车等待更久。
+     */
+    private boolean tryMacroStep(long now, Entity entity) {
+        if (macroStepCells <= 1 || timedRoutePlanner != null || replanRequired.contains(entity.getId())) return false;
+        List<Location> ahead = entity.getRemainingPath();
+        int limit = Math.min(macroStepCells, ahead.size());
+        int length = 0;
+        try {
+            while (length < limit && physicsEngine.isUncontested(ahead.get(length), entity.getId(), MACRO_STEP_CLEARANCE)) length++;
+        } catch (RouteUnavailableException e) {
+            // 后续路段无法展开，宏步只走到段尾，到达后按下一格处理
+        }
+        if (length < 2) return false;
+
+        List<Location> run = new ArrayList<>(ahead.subList(0, length));
+        for (int i = 0; i < length; i++) entity.popNextStep();
+        physicsEngine.lockResources(entity.getId(), run);
+        macroRuns.put(entity.getId(), run);
+        long travelTime = timeModule.estimateMovementTime(entity, run);
+        schedule(now + travelTime, EventType.MOVE_STEP,
+                entity.getId(), entity.getCurrentInstructionId(), run.get(length - 1).pack());
+        return true;
+    }
+
+    // --- 时空预约 ---
+
+    private List<Location> planReserved(long now, Entity entity, Location target, Instruction inst) {
+        if (timedRoutePlanner == null) return null;
+        long stepTime = timeModule.estimateMovementTime(entity, Collections.singletonList(target));
+        List<Location> path = timedRoutePlanner.planTimed(entity.getId(), entity.getCurrentLocation(), target,
+                now, stepTime, cooperativePartners(entity, inst));
+        return (path == null || path.isEmpty()) ? null : path;
+    }
+
+    private boolean replanReserved(long now, Entity entity, Location goal, Instruction inst) {
+        if (timedRoutePlanner == null || goal == null) return false;
+        List<Location> path = planReserved(now, entity, goal, inst);
+        Location first = (path != null) ? path.get(0) : null;
+        if (first == null || (!first.equals(entity.getCurrentLocation())
+                && physicsEngine.detectCollision(first, entity.getId(), inst, goal))) {
+            // 预约与实际占用不一致 (如对方被延误)，放弃预约，按原路径等待重试
+            timedRoutePlanner.release(entity.getId());
+            return false;
+        }
+        entity.setRemainingPath(path);
         processNextMoveStep(now, entity);
+        return true;
+    }
+
+    // --- 地图变化 ---
+
+    @Override
+    public void onCellChanged(int x, int y, boolean walkable) {
+        if (walkable) return;
+        Location closed = new Location(x, y);
+        for (Entity e : entitiesWithStatus(EntityStatus.MOVING)) {
+            if (e.getStatus() == EntityStatus.MOVING && passesThrough(e, closed)) {
+                replanRequired.add(e.getId());
+            }
+        }
+    }
+
+    // 剩余路径是否经过该格；需展开的路段已无法展开时同样视为需要重规划
+    private static boolean passesThrough(Entity entity, Location cell) {
+        try {
+            return entity.getRemainingPath().contains(cell);
+        } catch (RouteUnavailableException e) {
+            return true;
+        }
+    }
+
+    private boolean repairPath(Entity entity) {
+        Location current = entity.getCurrentLocation();
+        Location goal = entity.getPathGoal();
+        List<Location> path = (incrementalRoutePlanner != null)
+                ? incrementalRoutePlanner.replan(entity.getId(), current) : null;
+        if (path == null) path = routePlanner.searchRoute(current, goal);
+        if (path == null || path.isEmpty()) return false;
+        // 新路径与原有时空预约不再对应
+        if (timedRoutePlanner != null) timedRoutePlanner.release(entity.getId());
+        entity.setRemainingPath(path);
+        return true;
+    }
+
+    private Set<String> cooperativePartners(Entity entity, Instruction inst) {
+        if (inst == null) return Collections.emptySet();
+        Set<String> partners = new HashSet<>();
+        for (String id : new String[]{inst.getTargetQC(), inst.getTargetYC(), inst.getTargetIT()}) {
+            if (id != null && !id.equals(entity.getId())) partners.add(id);
+        }
+        return partners;
     }
 
     // --- 协同与状态机流转 ---
 
     private void checkAndWakeUpPartners(long now, Entity me) {
-        for (Entity other : entities.values()) {
+        for (Entity other : entitiesAt(me.getCurrentLocation())) {
             if (other.getId().equals(me.getId())) continue;
             // 只要位置重合，且对方处于可被唤醒状态（WAITING 或 IDLE）
             if (other.getCurrentLocation().equals(me.getCurrentLocation())) {
@@ -232,6 +716,21 @@ public class SimpleScheduler {
         }
     }
 
+    // 未启用状态表时返回全部实体，调用方仍需自行判断；结果为快照，遍历中修改状态/位置不影响本次遍历
+    private Collection<Entity> entitiesWithStatus(EntityStatus status) {
+        if (stateStore == null) return entities.values();
+        List<Entity> result = new ArrayList<>();
+        stateStore.forEachWithStatus(status, i -> result.add(stateStore.entity(i)));
+        return result;
+    }
+
+    private Collection<Entity> entitiesAt(Location loc) {
+        if (stateStore == null) return entities.values();
+        List<Entity> result = new ArrayList<>(4);
+        stateStore.forEachAt(loc, i -> result.add(stateStore.entity(i)));
+        return result;
+    }
+
     private boolean isCrane(Entity e) { return e.getType() == EntityType.QC || e.getType() == EntityType.YC; }
     private boolean canExecute(Entity e) { return e.getStatus() == EntityStatus.IDLE || e.getStatus() == EntityStatus.WAITING; }
 
@@ -297,8 +796,18 @@ public class SimpleScheduler {
 
         long finishTime = now + duration;
         EventType craneEvent = (crane.getType() == EntityType.QC) ? EventType.QC_EXECUTION_COMPLETE : EventType.YC_EXECUTION_COMPLETE;
-        pendingEvents.add(new SimEvent(finishTime, craneEvent, crane.getId(), inst.getInstructionId()));
-        pendingEvents.add(new SimEvent(finishTime, EventType.IT_EXECUTION_COMPLETE, it.getId(), inst.getInstructionId()));
+        schedule(finishTime, craneEvent, crane.getId(), inst.getInstructionId());
+        schedule(finishTime, EventType.IT_EXECUTION_COMPLETE, it.getId(), inst.getInstructionId());
+    }
+
+    private void schedule(long timestamp, EventType type, String entityId, String instructionId) {
+        schedule(timestamp, type, entityId, instructionId, SimEvent.NO_POSITION);
+    }
+
+    private void schedule(long timestamp, EventType type, String entityId, String instructionId, long packedPosition) {
+        List<SimEvent> sink = concurrentDispatch ? eventCapture.get() : null;
+        if (sink != null) sink.add(new SimEvent(timestamp, type, entityId, instructionId, packedPosition));
+        else pendingEvents.add(eventPool.obtain(timestamp, type, entityId, instructionId, packedPosition));
     }
 
     private void triggerArrivalEvent(long now, Entity entity) {
@@ -307,7 +816,7 @@ public class SimpleScheduler {
             case YC -> EventType.YC_ARRIVAL;
             case IT -> EventType.IT_ARRIVAL;
         };
-        pendingEvents.add(new SimEvent(now, type, entity.getId(), entity.getCurrentInstructionId()));
+        schedule(now, type, entity.getId(), entity.getCurrentInstructionId());
     }
 
     private Location getTargetLocation(Entity e, Instruction i) {
@@ -331,7 +840,7 @@ public class SimpleScheduler {
         if (inst != null) {
             inst.markCompleted(now);
             taskAllocator.onTaskCompleted(iid);
-            System.out.println(">>> [" + now + "] 任务完成! Total_Throughput +1. ID: " + iid);
+            if (verbose) System.out.println(">>> [" + now + "] 任务完成! Total_Throughput +1. ID: " + iid);
         }
     }
 
@@ -339,13 +848,33 @@ public class SimpleScheduler {
         Instruction task = taskGenerator.generate(now);
         if (task != null) {
             addInstruction(task);
-            System.out.println(">>> [" + now + "] 新任务: " + task.getInstructionId());
-            for (Entity e : entities.values()) {
-                if (e.getStatus() == EntityStatus.IDLE) decisionMaking(now, e);
-            }
+            if (verbose) System.out.println(">>> [" + now + "] 新任务: " + task.getInstructionId());
+            wakeIdleEntities(now);
         }
         // 持续生成任务，直到外部停止或达到最大事件数
-        pendingEvents.add(new SimEvent(now + taskGenInterval, EventType.TASK_GENERATION, "SYSTEM"));
+        schedule(now + taskGenInterval, EventType.TASK_GENERATION, "SYSTEM", null);
+    }
+
+    // --- 外部注入 (如数字孪生接收的实时指令与封闭)，须在引擎线程的两次事件之间调用 ---
+
+    /** 提交新任务并立即唤醒空闲设备参与派工；指令 ID 须唯一 */
+    public void injectInstruction(long now, Instruction task) {
+        addInstruction(task);
+        if (verbose) System.out.println(">>> [" + now + "] 注入任务: " + task.getInstructionId());
+        wakeIdleEntities(now);
+    }
+
+    /** 运行时开放/封闭格子，经地图监听通知路径缓存与受影响的设备 */
+    public void setCellWalkable(int x, int y, boolean walkable) {
+        gridMap.setWalkable(x, y, walkable);
+    }
+
+    private void wakeIdleEntities(long now) {
+        beginDecisionBatch();
+        for (Entity e : entitiesWithStatus(EntityStatus.IDLE)) {
+            if (e.getStatus() == EntityStatus.IDLE) decisionMaking(now, e);
+        }
+        flushDecisionBatch(now);
     }
 
     private boolean isCooperativeMove(Entity mover, String occupierId) {
@@ -0,0 +1,148 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import map.GridMap;
+import map.Location;
+import map.NodeDistanceMatrix;
+import map.RoutePath;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于扁平格子索引的 A* 寻路 (曼哈顿启发)。
+ * g 值、父节点、访问纪元均存放在线程私有的可复用数组中，单次搜索除结果路径外几乎不分配对象。
+ * 若提供保留了距离场的 NodeDistanceMatrix，终点为注册节点时改用精确距离作启发，只沿最短路扩展。
+ */
+public class AStarRoutePlanner implements RoutePlanner, SearchStatistics {
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final GridMap gridMap;
+    private final NodeDistanceMatrix distances;
+    private final ThreadLocal<SearchBuffers> buffers;
+
+    public AStarRoutePlanner(GridMap gridMap) {
+        this(gridMap, null);
+    }
+
+    public AStarRoutePlanner(GridMap gridMap, NodeDistanceMatrix distances) {
+        this.gridMap = gridMap;
+        this.distances = distances;
+        this.buffers = ThreadLocal.withInitial(() -> new SearchBuffers(gridMap.getCellCount()));
+    }
+
+    @Override
+    public List<Location> searchRoute(Location start, Location end) {
+        if (start == null || end == null || start.equals(end)) return Collections.emptyList();
+        if (!inBounds(start) || !gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+
+        final int w = gridMap.getWidth();
+        final int tx = end.x(), ty = end.y();
+        final int source = gridMap.cellIndex(start.x(), start.y());
+        final int target = gridMap.cellIndex(tx, ty);
+        final int[] exact = exactField(target);
+        if (exact != null && exact[source] == NodeDistanceMatrix.UNREACHABLE) return Collections.emptyList();
+
+        SearchBuffers b = buffers.get();
+        final int epoch = b.nextEpoch();
+        final int[] g = b.g, parent = b.parent, mark = b.mark;
+        IntMinHeap open = b.open;
+        open.clear();
+        b.expanded = 0;
+
+        g[source] = 0;
+        parent[source] = -1;
+        mark[source] = epoch;
+        int h0 = (exact != null) ? exact[source] : Math.abs(start.x() - tx) + Math.abs(start.y() - ty);
+        open.push(key(h0, h0), source);
+
+        while (!open.isEmpty()) {
+            int f = (int) (open.peekKey() >>> 32);
+            int cur = open.pop();
+            int cx = cur % w, cy = cur / w;
+            // 惰性删除：堆中过期的条目直接跳过
+            int hc = (exact != null) ? exact[cur] : Math.abs(cx - tx) + Math.abs(cy - ty);
+            if (f != g[cur] + hc) continue;
+            b.expanded++;
+            if (cur == target) break;
+
+            int ng = g[cur] + 1;
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (!gridMap.isWalkable(nx, ny)) continue;
+                int next = cur + DX[d] + DY[d] * w;
+                // 精确距离场下到不了终点的格子直接剪枝
+                if (exact != null && exact[next] == NodeDistanceMatrix.UNREACHABLE) continue;
+                if (mark[next] != epoch || ng < g[next]) {
+                    mark[next] = epoch;
+                    g[next] = ng;
+                    parent[next] = cur;
+                    int h = (exact != null) ? exact[next] : Math.abs(nx - tx) + Math.abs(ny - ty);
+                    open.push(key(ng + h, h), next);
+                }
+            }
+        }
+
+        if (mark[target] != epoch) return Collections.emptyList();
+        return buildPath(parent, source, target, g[target], w);
+    }
+
+    // 搜索缓冲为线程私有，批量查询可直接并行
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        return ParallelRouteBatch.solve(this, queries);
+    }
+
+    @Override
+    public long getLastExpandedNodes() { return buffers.get().expanded; }
+
+    private List<Location> buildPath(int[] parent, int source, int target, int length, int w) {
+        int[] steps = new int[length];
+        int cell = target;
+        for (int i = length - 1; i >= 0 && cell != source; i--) {
+            steps[i] = cell;
+            cell = parent[cell];
+        }
+        return new RoutePath(gridMap, steps);
+    }
+
+    private int[] exactField(int targetCell) {
+        if (distances == null || !distances.hasDistanceFields()) return null;
+        int node = distances.nodeAtCell(targetCell);
+        return node >= 0 ? distances.distanceField(node) : null;
+    }
+
+    private boolean inBounds(Location loc) {
+        return loc.x() >= 0 && loc.x() < gridMap.getWidth() && loc.y() >= 0 && loc.y() < gridMap.getHeight();
+    }
+
+    // 先按 f 排序，f 相同时优先 h 更小 (更靠近终点) 的节点，减少等价扩展
+    private static long key(int f, int h) { return ((long) f << 32) | h; }
+
+    private static final class SearchBuffers {
+        final int[] g;
+        final int[] parent;
+        final int[] mark;
+        final IntMinHeap open;
+        int epoch;
+        long expanded;
+
+        SearchBuffers(int cells) {
+            this.g = new int[cells];
+            this.parent = new int[cells];
+            this.mark = new int[cells];
+            this.open = new IntMinHeap(1024);
+        }
+
+        // 纪元号代替每次清空数组；溢出时才整体重置一次
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import decision.RouteUnavailableException;
+import map.CellChangeListener;
+import map.Location;
+import map.RoutePath;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路径缓存装饰器：按 (起点, 终点) 缓存任意 RoutePlanner 的结果，容量有上限并按 LRU 淘汰。
+ * 缓存的路径均为只读视图，Entity.setRemainingPath 拷贝时不会相互影响。
+ * 注册到 GridMap 后，格子变为不可通行时失效经过该格的路径，变为可通行时清空全部缓存 (可能出现更短路径)。
+ */
+public class CachingRoutePlanner implements RoutePlanner, CellChangeListener {
+    private record RouteKey(Location origin, Location destination) {}
+
+    private final RoutePlanner delegate;
+    private final int maxEntries;
+    private final LinkedHashMap<RouteKey, List<Location>> cache;
+
+    // 每次失效自增，防止锁外搜索期间地图变化后把过期路径写回缓存
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public CachingRoutePlanner(RoutePlanner delegate, int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("缓存容量必须为正数: " + maxEntries);
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        // accessOrder = true：按访问顺序排列，最久未使用的在队首
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, List<Location>> eldest) {
+                if (size() > CachingRoutePlanner.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<Location> searchRoute(Location origin, Location destination) {
+        if (origin == null || destination == null) return delegate.searchRoute(origin, destination);
+        RouteKey key = new RouteKey(origin, destination);
+        long observed;
+        synchronized (this) {
+            List<Location> cached = cache.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            observed = generation;
+        }
+
+        // 在锁外执行实际搜索，避免阻塞其他查询
+        List<Location> path = delegate.searchRoute(origin, destination);
+        List<Location> frozen = freeze(path);
+        synchronized (this) {
+            if (observed == generation) cache.put(key, frozen);
+        }
+        return frozen;
+    }
+
+    /**
+     * 批量查询：先在锁内取出全部命中项，未命中的去重后整批交给被装饰的规划器 (可并行)，再统一写回
+     */
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        List<List<Location>> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        Map<RouteKey, List<Integer>> missing = new HashMap<>();
+        List<RouteQuery> missQueries = new ArrayList<>();
+        long observed;
+        synchronized (this) {
+            for (int i = 0; i < results.size(); i++) {
+                RouteQuery q = queries.get(i);
+                if (q.origin() == null || q.destination() == null) {
+                    results.set(i, Collections.emptyList());
+                    continue;
+                }
+                RouteKey key = new RouteKey(q.origin(), q.destination());
+                List<Location> cached = cache.get(key);
+                if (cached != null) {
+                    hits++;
+                    results.set(i, cached);
+                    continue;
+                }
+                // 同一批内的重复查询只搜索一次，按命中计
+                List<Integer> slots = missing.get(key);
+                if (slots == null) {
+                    misses++;
+                    slots = new ArrayList<>(1);
+                    missing.put(key, slots);
+                    missQueries.add(q);
+                } else {
+                    hits++;
+                }
+                slots.add(i);
+            }
+            observed = generation;
+        }
+        if (missQueries.isEmpty()) return results;
+
+        List<List<Location>> solved = delegate.searchRoutes(missQueries);
+        synchronized (this) {
+            for (int j = 0; j < missQueries.size(); j++) {
+                RouteQuery q = missQueries.get(j);
+                List<Location> path = solved.get(j);
+                List<Location> frozen = freeze(path);
+                RouteKey key = new RouteKey(q.origin(), q.destination());
+                if (observed == generation) cache.put(key, frozen);
+                for (int i : missing.get(key)) results.set(i, frozen);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized void onCellChanged(int x, int y, boolean walkable) {
+        generation++;
+        if (walkable) {
+            invalidations += cache.size();
+            cache.clear();
+            return;
+        }
+        Location blocked = new Location(x, y);
+        Iterator<Map.Entry<RouteKey, List<Location>>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<RouteKey, List<Location>> e = it.next();
+            if (e.getKey().origin().equals(blocked) || passesThrough(e.getValue(), blocked)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    // 惰性路径需展开的路段已无法展开时，缓存同样失效
+    private static boolean passesThrough(List<Location> path, Location cell) {
+        try {
+            return path.contains(cell);
+        } catch (RouteUnavailableException e) {
+            return true;
+        }
+    }
+
+    // RoutePath 与 LazyPath 本身只读，可直接共享，无需再包一层
+    private static List<Location> freeze(List<Location> path) {
+        if (path == null || path.isEmpty()) return Collections.emptyList();
+        return (path instanceof RoutePath || path instanceof LazyPath) ? path : Collections.unmodifiableList(path);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += cache.size();
+        cache.clear();
+    }
+
+    /** 被装饰的规划器 */
+    public RoutePlanner getDelegate() { return delegate; }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+    public synchronized int size() { return cache.size(); }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("路径缓存[容量:%d/%d, 命中:%d, 未命中:%d, 命中率:%.1f%%, 淘汰:%d, 失效:%d]",
+                cache.size(), maxEntries, hits, misses, total == 0 ? 0.0 : hits * 100.0 / total,
+                evictions, invalidations);
+    }
+}
@@ -0,0 +1,40 @@
+package plugins;
+
+import java.util.Random;
+
+/**
+ * 与 java.util.Random 同种子同序列的 48 位线性同余生成器，内部状态为一个可读写的 long，
+ * 检查点直接写出该值，不经 Java 序列化。单线程使用；nextGaussian 的缓存值不属于可保存的状态。
+ */
+public class CheckpointableRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Random 的构造器经 setSeed 初始化，此字段不能有初始化表达式
+    private long state;
+
+    public CheckpointableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    // Random 的其余方法 (nextInt(bound)、nextDouble 等) 都经由 next 取位
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /** 当前内部状态，写入检查点 */
+    public long getState() { return state; }
+
+    /** 恢复 getState 取得的状态，之后的序列与保存时一致 */
+    public void setState(long state) { this.state = state & MASK; }
+}
@@ -0,0 +1,294 @@
+package plugins;
+
+import decision.IncrementalRoutePlanner;
+import map.CellChangeListener;
+import map.GridMap;
+import map.Location;
+import map.RoutePath;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * D* Lite 增量寻路 (4 连通，单位代价)。
+ * 每个会话从终点反向搜索，g/rhs 只为访问过的格子存放在稀疏的开放寻址表中；
+ * 格子通行状态变化时只登记到各会话，下一次 replan 时更新其邻格的 rhs 并局部修复，代价与变化规模相关。
+ * 代价模型为"进入不可通行格代价无穷"，因此设备所在格被封闭时仍可驶离。
+ */
+public class DStarLiteRoutePlanner implements IncrementalRoutePlanner, CellChangeListener, SearchStatistics {
+    private static final int INF = Integer.MAX_VALUE / 4;
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final GridMap gridMap;
+    private final Map<String, Session> sessions = new HashMap<>();
+    private final ThreadLocal<long[]> expanded = ThreadLocal.withInitial(() -> new long[1]);
+
+    public DStarLiteRoutePlanner(GridMap gridMap) {
+        this.gridMap = gridMap;
+    }
+
+    @Override
+    public List<Location> searchRoute(Location start, Location end) {
+        if (start == null || end == null || start.equals(end)) return Collections.emptyList();
+        if (!inBounds(start) || !gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+        Session s = new Session(cell(start), cell(end));
+        return s.plan();
+    }
+
+    @Override
+    public synchronized List<Location> openSession(String sessionId, Location origin, Location destination) {
+        sessions.remove(sessionId);
+        if (origin == null || destination == null || origin.equals(destination)) return Collections.emptyList();
+        if (!inBounds(origin) || !inBounds(destination)) return Collections.emptyList();
+        Session s = new Session(cell(origin), cell(destination));
+        sessions.put(sessionId, s);
+        return s.plan();
+    }
+
+    @Override
+    public synchronized List<Location> replan(String sessionId, Location current) {
+        Session s = sessions.get(sessionId);
+        if (s == null || current == null || !inBounds(current)) return null;
+        s.moveTo(cell(current));
+        return s.plan();
+    }
+
+    @Override
+    public synchronized void closeSession(String sessionId) { sessions.remove(sessionId); }
+
+    @Override
+    public synchronized void onCellChanged(int x, int y, boolean walkable) {
+        int c = gridMap.cellIndex(x, y);
+        for (Session s : sessions.values()) s.pending.add(c);
+    }
+
+    public synchronized int getSessionCount() { return sessions.size(); }
+
+    @Override
+    public long getLastExpandedNodes() { return expanded.get()[0]; }
+
+    private int cell(Location loc) { return gridMap.cellIndex(loc.x(), loc.y()); }
+
+    private boolean inBounds(Location loc) {
+        return loc.x() >= 0 && loc.x() < gridMap.getWidth() && loc.y() >= 0 && loc.y() < gridMap.getHeight();
+    }
+
+    private final class Session {
+        final int goal;
+        int start;
+        int last;
+        int km;
+        final CellTable table = new CellTable();
+        final IntMinHeap open = new IntMinHeap(64);
+        final IntList pending = new IntList();
+
+        Session(int start, int goal) {
+            this.start = start;
+            this.last = start;
+            this.goal = goal;
+            table.setRhs(goal, 0);
+            open.push(calcKey(goal), goal);
+        }
+
+        void moveTo(int current) { start = current; }
+
+        List<Location> plan() {
+            expanded.get()[0] = 0;
+            if (pending.size() > 0) {
+                // 起点移动后键值下界整体上升 km，旧队列条目无需重排
+                km += heuristic(last, start);
+                last = start;
+                for (int i = 0; i < pending.size(); i++) {
+                    int c = pending.get(i);
+                    int cx = c % gridMap.getWidth(), cy = c / gridMap.getWidth();
+                    for (int d = 0; d < 4; d++) {
+                        int nx = cx + DX[d], ny = cy + DY[d];
+                        if (nx < 0 || ny < 0 || nx >= gridMap.getWidth() || ny >= gridMap.getHeight()) continue;
+                        updateVertex(gridMap.cellIndex(nx, ny));
+                    }
+                }
+                pending.clear();
+            }
+            computeShortestPath();
+            return extractPath();
+        }
+
+        private void computeShortestPath() {
+            final int w = gridMap.getWidth();
+            long count = 0;
+            while (!open.isEmpty()) {
+                long top = open.peekKey();
+                if (top >= calcKey(start) && table.g(start) == table.rhs(start)) break;
+                int u = open.pop();
+                int gu = table.g(u), ru = table.rhs(u);
+                if (gu == ru) continue;                 // 已一致的过期条目
+                long current = calcKey(u);
+                if (top < current) {                     // km 增大后的旧键，按新键重新入队
+                    open.push(current, u);
+                    continue;
+                }
+                count++;
+                if (gu > ru) {
+                    table.setG(u, ru);
+                } else {
+                    table.setG(u, INF);
+                    updateVertex(u);
+                }
+                int ux = u % w, uy = u / w;
+                for (int d = 0; d < 4; d++) {
+                    int nx = ux + DX[d], ny = uy + DY[d];
+                    if (nx < 0 || ny < 0 || nx >= w || ny >= gridMap.getHeight()) continue;
+                    updateVertex(gridMap.cellIndex(nx, ny));
+                }
+            }
+            expanded.get()[0] = count;
+        }
+
+        private void updateVertex(int u) {
+            if (u != goal) {
+                final int w = gridMap.getWidth();
+                int ux = u % w, uy = u / w;
+                int best = INF;
+                for (int d = 0; d < 4; d++) {
+                    int nx = ux + DX[d], ny = uy + DY[d];
+                    if (!gridMap.isWalkable(nx, ny)) continue;
+                    int gv = table.g(gridMap.cellIndex(nx, ny));
+                    if (gv < INF && gv + 1 < best) best = gv + 1;
+                }
+                table.setRhs(u, best);
+            }
+            if (table.g(u) != table.rhs(u)) open.push(calcKey(u), u);
+        }
+
+        // 沿 g 值下降方向从起点走到终点
+        private List<Location> extractPath() {
+            int length = table.g(start);
+            if (length >= INF) return Collections.emptyList();
+            final int w = gridMap.getWidth();
+            int[] steps = new int[length];
+            int cur = start;
+            for (int i = 0; i < length; i++) {
+                int cx = cur % w, cy = cur / w;
+                int next = -1, best = INF;
+                for (int d = 0; d < 4; d++) {
+                    int nx = cx + DX[d], ny = cy + DY[d];
+                    if (!gridMap.isWalkable(nx, ny)) continue;
+                    int n = gridMap.cellIndex(nx, ny);
+                    int gn = table.g(n);
+                    if (gn < best) { best = gn; next = n; }
+                }
+                if (next < 0) return Collections.emptyList();
+                steps[i] = next;
+                cur = next;
+            }
+            return new RoutePath(gridMap, steps);
+        }
+
+        private long calcKey(int u) {
+            int k2 = Math.min(table.g(u), table.rhs(u));
+            long k1 = (k2 >= INF) ? INF : (long) k2 + heuristic(start, u) + km;
+            return (Math.min(k1, Integer.MAX_VALUE) << 32) | k2;
+        }
+
+        private int heuristic(int a, int b) {
+            final int w = gridMap.getWidth();
+            return Math.abs(a % w - b % w) + Math.abs(a / w - b / w);
+        }
+    }
+
+    /** 格子 -> (g, rhs) 的开放寻址表，缺省值为 INF */
+    private static final class CellTable {
+        private int[] keys = newKeys(64);
+        private int[] g = new int[64];
+        private int[] rhs = new int[64];
+        private int size;
+
+        int g(int cell) {
+            int slot = find(cell);
+            return keys[slot] == cell ? g[slot] : INF;
+        }
+
+        int rhs(int cell) {
+            int slot = find(cell);
+            return keys[slot] == cell ? rhs[slot] : INF;
+        }
+
+        void setG(int cell, int value) {
+            int slot = find(cell);
+            if (keys[slot] == cell) g[slot] = value;
+            else if (value < INF) {
+                slot = insert(cell);             // 可能扩容，须先取槽位再写数组
+                g[slot] = value;
+            }
+        }
+
+        // 不存在且写入 INF 时不建表项，表规模只随实际访问的格子增长
+        void setRhs(int cell, int value) {
+            int slot = find(cell);
+            if (keys[slot] == cell) rhs[slot] = value;
+            else if (value < INF) {
+                slot = insert(cell);             // 可能扩容，须先取槽位再写数组
+                rhs[slot] = value;
+            }
+        }
+
+        private int find(int cell) {
+            int mask = keys.length - 1;
+            int slot = mix(cell) & mask;
+            while (keys[slot] != -1 && keys[slot] != cell) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private int insert(int cell) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int slot = find(cell);
+            keys[slot] = cell;
+            g[slot] = INF;
+            rhs[slot] = INF;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldG = g, oldRhs = rhs;
+            keys = newKeys(oldKeys.length * 2);
+            g = new int[keys.length];
+            rhs = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == -1) continue;
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                g[slot] = oldG[i];
+                rhs[slot] = oldRhs[i];
+            }
+        }
+
+        private static int[] newKeys(int capacity) {
+            int[] k = new int[capacity];
+            Arrays.fill(k, -1);
+            return k;
+        }
+
+        private static int mix(int x) {
+            x *= 0x9E3779B9;
+            return x ^ (x >>> 16);
+        }
+    }
+
+    private static final class IntList {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        int get(int i) { return data[i]; }
+        int size() { return size; }
+        void clear() { size = 0; }
+    }
+}
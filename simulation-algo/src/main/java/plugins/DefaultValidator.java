@@ -1,26 +1,39 @@
 package plugins;
 
+import decision.IncrementalValidator;
 import decision.SimulationValidator;
+import event.EventType;
 import event.SimEvent;
 import java.util.*;
 
-public class DefaultValidator implements SimulationValidator {
+public class DefaultValidator implements SimulationValidator, IncrementalValidator {
+    private final List<String> errors = new ArrayList<>();
+    private final Map<String, Long> lastTime = new HashMap<>();
+
     @Override
     public List<String> validate(List<SimEvent> events) {
-        List<String> reports = new ArrayList<>();
-        Map<String, Long> lastTime = new HashMap<>();
-
-        for (SimEvent e : events) {
-            // 物理校验：时间单调性
-            long prev = lastTime.getOrDefault(e.getEntityId(), 0L);
-            if (e.getTimestamp() < prev) {
-                reports.add("[错误] 设备 " + e.getEntityId() + " 时间倒流: " + e.getTimestamp());
-            }
-            lastTime.put(e.getEntityId(), e.getTimestamp());
+        DefaultValidator v = new DefaultValidator();
+        events.forEach(v::onEvent);
+        return v.report();
+    }
 
-            // 业务校验可以按需添加：如到达后才能完成作业等
+    @Override
+    public void onEvent(SimEvent e) {
+        if (e.getType() == EventType.MOVE_STEP) return;
+        // 物理校验：时间单调性
+        long prev = lastTime.getOrDefault(e.getEntityId(), 0L);
+        if (e.getTimestamp() < prev) {
+            errors.add("[错误] 设备 " + e.getEntityId() + " 时间倒流: " + e.getTimestamp());
         }
+        lastTime.put(e.getEntityId(), e.getTimestamp());
+
+        // 业务校验可以按需添加：如到达后才能完成作业等
+    }
+
+    @Override
+    public List<String> report() {
+        List<String> reports = new ArrayList<>(errors);
         if (reports.isEmpty()) reports.add("[成功] 仿真逻辑一致性校验通过。");
         return reports;
     }
-}
\ No newline at end of file
+}
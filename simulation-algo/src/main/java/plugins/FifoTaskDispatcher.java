@@ -1,15 +1,21 @@
 package plugins;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
 import decision.TaskAllocator;
 import decision.TrafficController;
 import entity.Entity;
 import entity.EntityType;
 import Instruction.Instruction;
 import Instruction.InstructionType;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-public class FifoTaskDispatcher implements TaskAllocator, TrafficController {
+public class FifoTaskDispatcher implements TaskAllocator, TrafficController, Checkpointable {
     private final List<Instruction> pendingTasks = Collections.synchronizedList(new ArrayList<>());
     private final Map<String, Set<String>> taskAssignments = new ConcurrentHashMap<>();
     // 新增：记录每个任务已完成的设备ID
@@ -74,6 +80,56 @@ public class FifoTaskDispatcher implements TaskAllocator, TrafficController {
         return wait;
     }
 
+    // --- 检查点：待派任务只记 ID，恢复时引用调度器中的同一指令对象 ---
+
+    @Override
+    public String checkpointKey() { return "dispatcher"; }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        synchronized (pendingTasks) {
+            out.writeVarInt(pendingTasks.size());
+            for (Instruction task : pendingTasks) out.writeString(task.getInstructionId());
+            writeIdSets(out, taskAssignments);
+            writeIdSets(out, finishedParts);
+        }
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in, int version, Function<String, Instruction> instructions) throws IOException {
+        synchronized (pendingTasks) {
+            pendingTasks.clear();
+            for (int i = in.readVarInt(); i > 0; i--) {
+                String id = in.readString();
+                Instruction task = instructions.apply(id);
+                if (task == null) throw new IOException("检查点中的待派任务不存在: " + id);
+                pendingTasks.add(task);
+            }
+            readIdSets(in, taskAssignments, HashSet::new);
+            readIdSets(in, finishedParts, ConcurrentHashMap::newKeySet);
+        }
+    }
+
+    private static void writeIdSets(CheckpointOutput out, Map<String, Set<String>> map) throws IOException {
+        out.writeVarInt(map.size());
+        for (Map.Entry<String, Set<String>> e : map.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeVarInt(e.getValue().size());
+            for (String id : e.getValue()) out.writeString(id);
+        }
+    }
+
+    private static void readIdSets(CheckpointInput in, Map<String, Set<String>> map,
+                                   Supplier<Set<String>> factory) throws IOException {
+        map.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String key = in.readString();
+            Set<String> ids = factory.get();
+            for (int k = in.readVarInt(); k > 0; k--) ids.add(in.readString());
+            map.put(key, ids);
+        }
+    }
+
     private boolean isEntityMatch(Entity e, Instruction i) {
         if (e.getType() == EntityType.QC) return e.getId().equals(i.getTargetQC());
         if (e.getType() == EntityType.YC) return e.getId().equals(i.getTargetYC());
@@ -0,0 +1,174 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import map.CellChangeListener;
+import map.GridMap;
+import map.Location;
+import map.NodeDistanceMatrix;
+import map.RoadGraph;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路网图寻路：在 JsonMapLoader 保留的路段拓扑 (CSR) 上做 A*，搜索规模为路段数而不是格子数。
+ * 结果按路段返回 LazyPath，实体推进到某一路段时才展开为逐格坐标。
+ * 斜向路段按 4 邻接栅格化结果逐格行驶，与地图上标记的可通行格及逐格移动耗时一致。
+ * 起点或终点不是路网节点时 (如途中重规划)，回退到栅格 A*。
+ * 注册到 GridMap 后，路段上任一格被封闭时该路段不可用，重新开放后恢复。
+ */
+public class GraphRoutePlanner implements RoutePlanner, SearchStatistics, CellChangeListener {
+    private final GridMap gridMap;
+    private final RoadGraph graph;
+    private final AStarRoutePlanner gridFallback;
+    private final ThreadLocal<SearchBuffers> buffers;
+
+    // 每条有向边上被封闭的格子数，> 0 时该边不可用
+    private final int[] edgeBlocked;
+    private final Map<Integer, int[]> cellToEdges = new HashMap<>();
+
+    public GraphRoutePlanner(GridMap gridMap) {
+        this(gridMap, null);
+    }
+
+    public GraphRoutePlanner(GridMap gridMap, NodeDistanceMatrix distances) {
+        this.gridMap = gridMap;
+        this.graph = gridMap.getRoadGraph();
+        this.gridFallback = new AStarRoutePlanner(gridMap, distances);
+        int nodes = (graph != null) ? graph.nodeCount() : 0;
+        this.buffers = ThreadLocal.withInitial(() -> new SearchBuffers(nodes));
+        this.edgeBlocked = new int[(graph != null) ? graph.edgeCount() : 0];
+        if (graph != null) indexEdgeCells();
+    }
+
+    @Override
+    public List<Location> searchRoute(Location start, Location end) {
+        if (start == null || end == null || start.equals(end)) return Collections.emptyList();
+        int source = (graph != null) ? graph.nodeAt(start) : -1;
+        int target = (graph != null) ? graph.nodeAt(end) : -1;
+        if (source < 0 || target < 0) {
+            List<Location> path = gridFallback.searchRoute(start, end);
+            buffers.get().expanded = gridFallback.getLastExpandedNodes();
+            return path;
+        }
+        if (!gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+
+        SearchBuffers b = buffers.get();
+        final int epoch = b.nextEpoch();
+        final int[] g = b.g, parent = b.parent, parentEdge = b.parentEdge, mark = b.mark;
+        IntMinHeap open = b.open;
+        open.clear();
+        b.expanded = 0;
+
+        final int w = gridMap.getWidth();
+        final int targetCell = graph.nodeCell(target);
+        g[source] = 0;
+        parent[source] = -1;
+        parentEdge[source] = -1;
+        mark[source] = epoch;
+        open.push(key(heuristic(graph.nodeCell(source), targetCell, w), 0), source);
+
+        while (!open.isEmpty()) {
+            int f = (int) (open.peekKey() >>> 32);
+            int cur = open.pop();
+            if (f != g[cur] + heuristic(graph.nodeCell(cur), targetCell, w)) continue;
+            b.expanded++;
+            if (cur == target) break;
+
+            for (int e = graph.firstEdge(cur); e < graph.endEdge(cur); e++) {
+                if (edgeBlocked[e] > 0) continue;
+                int next = graph.edgeTarget(e);
+                int ng = g[cur] + graph.edgeWeight(e);
+                if (mark[next] != epoch || ng < g[next]) {
+                    mark[next] = epoch;
+                    g[next] = ng;
+                    parent[next] = cur;
+                    parentEdge[next] = e;
+                    int h = heuristic(graph.nodeCell(next), targetCell, w);
+                    open.push(key(ng + h, h), next);
+                }
+            }
+        }
+        if (mark[target] != epoch) return Collections.emptyList();
+
+        // 回溯路段序列，逐格展开推迟到 LazyPath 首次访问
+        int count = 0;
+        for (int n = target; n != source; n = parent[n]) count++;
+        int[] edges = new int[count];
+        for (int n = target, i = count - 1; n != source; n = parent[n]) edges[i--] = parentEdge[n];
+
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) lengths[i] = graph.edgeWeight(edges[i]);
+        return new LazyPath(gridMap, lengths, segment -> graph.edgeCells(edges[segment]));
+    }
+
+    // 路网图搜索缓冲为线程私有，批量查询可直接并行
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        return ParallelRouteBatch.solve(this, queries);
+    }
+
+    @Override
+    public synchronized void onCellChanged(int x, int y, boolean walkable) {
+        int[] edges = cellToEdges.get(gridMap.cellIndex(x, y));
+        if (edges == null) return;
+        for (int e : edges) edgeBlocked[e] += walkable ? -1 : 1;
+    }
+
+    @Override
+    public long getLastExpandedNodes() { return buffers.get().expanded; }
+
+    public RoadGraph getGraph() { return graph; }
+
+    private void indexEdgeCells() {
+        Map<Integer, List<Integer>> byCell = new HashMap<>();
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            for (int cell : graph.edgeCells(e)) byCell.computeIfAbsent(cell, k -> new ArrayList<>(2)).add(e);
+        }
+        final int w = gridMap.getWidth();
+        for (Map.Entry<Integer, List<Integer>> entry : byCell.entrySet()) {
+            int cell = entry.getKey();
+            int[] edges = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            cellToEdges.put(cell, edges);
+            // 构建时已被封闭的格子
+            if (!gridMap.isWalkable(cell % w, cell / w)) for (int e : edges) edgeBlocked[e]++;
+        }
+    }
+
+    // 路段均为 4 邻接格子序列，曼哈顿距离是边权的可采纳启发
+    private static int heuristic(int a, int b, int w) {
+        return Math.abs(a % w - b % w) + Math.abs(a / w - b / w);
+    }
+
+    private static long key(int f, int h) { return ((long) f << 32) | h; }
+
+    private static final class SearchBuffers {
+        final int[] g;
+        final int[] parent;
+        final int[] parentEdge;
+        final int[] mark;
+        final IntMinHeap open;
+        int epoch;
+        long expanded;
+
+        SearchBuffers(int nodes) {
+            this.g = new int[nodes];
+            this.parent = new int[nodes];
+            this.parentEdge = new int[nodes];
+            this.mark = new int[nodes];
+            this.open = new IntMinHeap(64);
+        }
+
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
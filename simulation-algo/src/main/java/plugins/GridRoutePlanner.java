@@ -1,54 +1,98 @@
 package plugins;
 
 import decision.RoutePlanner;
+import decision.RouteQuery;
 import map.GridMap;
 import map.Location;
+import map.RoutePath;
 import java.util.*;
 
-public class GridRoutePlanner implements RoutePlanner {
+public class GridRoutePlanner implements RoutePlanner, SearchStatistics {
     private final GridMap gridMap;
     private static final int[][] DIRS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+    private final ThreadLocal<SearchBuffers> buffers;
 
-    public GridRoutePlanner(GridMap gridMap) { this.gridMap = gridMap; }
+    public GridRoutePlanner(GridMap gridMap) {
+        this.gridMap = gridMap;
+        this.buffers = ThreadLocal.withInitial(() -> new SearchBuffers(gridMap.getCellCount()));
+    }
 
     @Override
     public List<Location> searchRoute(Location start, Location end) {
         if (start == null || end == null || start.equals(end)) return Collections.emptyList();
 
-        // BFS 寻路
-        Queue<Location> queue = new LinkedList<>();
-        Map<Location, Location> cameFrom = new HashMap<>();
+        if (!gridMap.isValid(start.x(), start.y()) || !gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+
+        // BFS 寻路：前驱按格子索引存放在线程私有数组中，mark 不等于本次纪元即未访问
+        final int w = gridMap.getWidth();
+        final int source = gridMap.cellIndex(start.x(), start.y());
+        final int target = gridMap.cellIndex(end.x(), end.y());
+        SearchBuffers b = buffers.get();
+        final int epoch = b.nextEpoch();
+        final int[] cameFrom = b.cameFrom, mark = b.mark, queue = b.queue;
+        int head = 0, tail = 0;
 
-        queue.add(start);
-        cameFrom.put(start, null);
+        queue[tail++] = source;
+        cameFrom[source] = source;
+        mark[source] = epoch;
 
-        while (!queue.isEmpty()) {
-            Location current = queue.poll();
-            if (current.equals(end)) break;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == target) break;
 
+            int cx = current % w, cy = current / w;
             for (int[] dir : DIRS) {
-                // Record 访问: .x() .y()
-                int nx = current.x() + dir[0];
-                int ny = current.y() + dir[1];
-
-                if (gridMap.isWalkable(nx, ny)) {
-                    Location next = new Location(nx, ny);
-                    if (!cameFrom.containsKey(next)) {
-                        queue.add(next);
-                        cameFrom.put(next, current);
-                    }
+                int nx = cx + dir[0];
+                int ny = cy + dir[1];
+                if (!gridMap.isWalkable(nx, ny)) continue;
+                int next = gridMap.cellIndex(nx, ny);
+                if (mark[next] != epoch) {
+                    queue[tail++] = next;
+                    cameFrom[next] = current;
+                    mark[next] = epoch;
                 }
             }
         }
 
-        if (!cameFrom.containsKey(end)) return Collections.emptyList();
+        b.expanded = head;
+        if (mark[target] != epoch) return Collections.emptyList();
+
+        int length = 0;
+        for (int c = target; c != source; c = cameFrom[c]) length++;
+        int[] path = new int[length];
+        for (int c = target, i = length - 1; c != source; c = cameFrom[c]) path[i--] = c;
+        return new RoutePath(gridMap, path);
+    }
+
+    // 搜索缓冲为线程私有，批量查询可直接并行
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        return ParallelRouteBatch.solve(this, queries);
+    }
 
-        LinkedList<Location> path = new LinkedList<>();
-        Location curr = end;
-        while (curr != null && !curr.equals(start)) {
-            path.addFirst(curr);
-            curr = cameFrom.get(curr);
+    @Override
+    public long getLastExpandedNodes() { return buffers.get().expanded; }
+
+    private static final class SearchBuffers {
+        final int[] cameFrom;
+        final int[] mark;
+        final int[] queue;
+        int epoch;
+        long expanded;
+
+        SearchBuffers(int cells) {
+            this.cameFrom = new int[cells];
+            this.mark = new int[cells];
+            this.queue = new int[cells];
+        }
+
+        // 纪元号代替每次清空数组；溢出时才整体重置一次
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
         }
-        return path;
     }
 }
\ No newline at end of file
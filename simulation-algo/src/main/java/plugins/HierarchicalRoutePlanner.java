@@ -0,0 +1,505 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import decision.RouteUnavailableException;
+import map.CellChangeListener;
+import map.GridMap;
+import map.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 分层寻路 (HPA*)：把 GridMap 切成 clusterSize x clusterSize 的簇，
+ * 预计算簇边界上的入口节点及簇内入口间的最短距离，构成抽象图。
+ * 查询时先在抽象图上搜索，再按需 (LazyPath) 在单个簇内细化逐格路径，实体只会展开眼前的几个簇。
+ * 簇内细化被限制在簇边界内，结果为近似最优路径；细化时该段已不可按原长度走通则抛出 RouteUnavailableException。
+ * 注册为 CellChangeListener 后，地图变化会在下一次查询前触发抽象图重建：入口重新扫描，
+ * 簇内入口间距离只对发生变化的簇及入口集合随之改变的簇重新 BFS，其余簇沿用上一版。
+ */
+public class HierarchicalRoutePlanner implements RoutePlanner, SearchStatistics, CellChangeListener, LazyPath.SegmentSource {
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+    // 边界连通段长度达到该值时放置两个入口 (两端)，否则只在中点放一个
+    private static final int DOUBLE_ENTRANCE_RUN = 6;
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final GridMap gridMap;
+    private final int clusterSize;
+    private final int clustersX;
+    private final int clustersY;
+    private final ThreadLocal<Buffers> buffers;
+    private volatile AbstractGraph graph;
+    private volatile boolean dirty;
+    // 自上次重建以来格子发生变化的簇，由 this 保护
+    private final Set<Integer> dirtyClusters = new HashSet<>();
+
+    public HierarchicalRoutePlanner(GridMap gridMap) {
+        this(gridMap, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalRoutePlanner(GridMap gridMap, int clusterSize) {
+        if (clusterSize < 2) throw new IllegalArgumentException("簇尺寸至少为 2: " + clusterSize);
+        this.gridMap = gridMap;
+        this.clusterSize = clusterSize;
+        this.clustersX = (gridMap.getWidth() + clusterSize - 1) / clusterSize;
+        this.clustersY = (gridMap.getHeight() + clusterSize - 1) / clusterSize;
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(clusterSize));
+        this.graph = buildGraph(null, Collections.emptySet());
+    }
+
+    @Override
+    public List<Location> searchRoute(Location start, Location end) {
+        if (start == null || end == null || start.equals(end)) return Collections.emptyList();
+        if (!inBounds(start) || !gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+
+        AbstractGraph gr = currentGraph();
+        Buffers b = buffers.get();
+        int n = gr.nodeCount();
+        b.ensureAbstractCapacity(n + 2);
+        final int S = n, G = n + 1;
+        final int startCell = gridMap.cellIndex(start.x(), start.y());
+        final int goalCell = gridMap.cellIndex(end.x(), end.y());
+        final int sc = clusterOf(start.x(), start.y());
+        final int gc = clusterOf(end.x(), end.y());
+        final int epoch = b.nextEpoch();
+
+        // 1. 起点接入：簇内 BFS 求起点到本簇各入口的距离 (同簇时顺带得到直达距离)
+        clusterBfs(sc, startCell, b, false);
+        int[] startNodes = gr.clusterNodes[sc];
+        int[] startCosts = new int[startNodes.length];
+        for (int i = 0; i < startNodes.length; i++) startCosts[i] = localDist(sc, gr.nodeCell[startNodes[i]], b);
+        int direct = (sc == gc) ? localDist(sc, goalCell, b) : -1;
+
+        // 2. 终点接入：4 连通下距离对称，从终点 BFS 即得各入口到终点的距离
+        clusterBfs(gc, goalCell, b, false);
+        for (int node : gr.clusterNodes[gc]) {
+            int d = localDist(gc, gr.nodeCell[node], b);
+            if (d >= 0) {
+                b.goalMark[node] = epoch;
+                b.goalEdge[node] = d;
+            }
+        }
+
+        // 3. 抽象图 A*
+        int[] g = b.g, parent = b.parent, mark = b.mark;
+        IntMinHeap open = b.open;
+        open.clear();
+        b.expanded = 0;
+        g[S] = 0;
+        parent[S] = -1;
+        mark[S] = epoch;
+        open.push(key(manhattan(startCell, goalCell), 0), S);
+
+        while (!open.isEmpty()) {
+            int f = (int) (open.peekKey() >>> 32);
+            int u = open.pop();
+            int uCell = (u == S) ? startCell : (u == G) ? goalCell : gr.nodeCell[u];
+            if (f != g[u] + manhattan(uCell, goalCell)) continue;
+            b.expanded++;
+            if (u == G) break;
+
+            if (u == S) {
+                for (int i = 0; i < startNodes.length; i++) {
+                    if (startCosts[i] >= 0) relax(b, epoch, S, startNodes[i], startCosts[i], gr.nodeCell[startNodes[i]], goalCell);
+                }
+                if (direct >= 0) relax(b, epoch, S, G, direct, goalCell, goalCell);
+                continue;
+            }
+            for (int e = gr.edgeStart[u]; e < gr.edgeStart[u + 1]; e++) {
+                int v = gr.edgeTo[e];
+                relax(b, epoch, u, v, gr.edgeCost[e], gr.nodeCell[v], goalCell);
+            }
+            if (b.goalMark[u] == epoch) relax(b, epoch, u, G, b.goalEdge[u], goalCell, goalCell);
+        }
+
+        if (mark[G] != epoch) return Collections.emptyList();
+
+        // 4. 回溯抽象路径，生成分段长度，逐格细化推迟到 LazyPath 访问时
+        int hops = 0;
+        for (int v = G; v != S; v = parent[v]) hops++;
+        int[] fromCells = new int[hops];
+        int[] toCells = new int[hops];
+        int[] lengths = new int[hops];
+        int i = hops - 1;
+        for (int v = G; v != S; v = parent[v], i--) {
+            int u = parent[v];
+            fromCells[i] = (u == S) ? startCell : gr.nodeCell[u];
+            toCells[i] = (v == G) ? goalCell : gr.nodeCell[v];
+            lengths[i] = g[v] - g[u];
+        }
+        return new LazyPath(gridMap, lengths, new Segments(fromCells, toCells, lengths));
+    }
+
+    /** 抽象路径各段的细化器：簇内段只可能经过本簇的格子，跨簇段只有终点一格 */
+    private final class Segments implements LazyPath.SegmentRefiner {
+        private final int[] fromCells;
+        private final int[] toCells;
+        private final int[] lengths;
+
+        Segments(int[] fromCells, int[] toCells, int[] lengths) {
+            this.fromCells = fromCells;
+            this.toCells = toCells;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public int[] refine(int segment) {
+            return refineSegment(fromCells[segment], toCells[segment], lengths[segment]);
+        }
+
+        @Override
+        public boolean mayContain(int segment, int cell) {
+            int w = gridMap.getWidth();
+            int from = clusterOf(fromCells[segment] % w, fromCells[segment] / w);
+            int to = clusterOf(toCells[segment] % w, toCells[segment] / w);
+            return (from == to) ? clusterOf(cell % w, cell / w) == from : cell == toCells[segment];
+        }
+
+        @Override
+        public int[] endpoints(int segment) { return new int[]{fromCells[segment], toCells[segment]}; }
+    }
+
+    // 检查点恢复：段按起讫格在簇内细化，只依赖地图，不依赖抽象图
+    @Override
+    public LazyPath.SegmentRefiner refiner(int[] fromCells, int[] toCells, int[] lengths) {
+        return new Segments(fromCells, toCells, lengths);
+    }
+
+    private void relax(Buffers b, int epoch, int u, int v, int cost, int vCell, int goalCell) {
+        int ng = b.g[u] + cost;
+        if (b.mark[v] != epoch || ng < b.g[v]) {
+            b.mark[v] = epoch;
+            b.g[v] = ng;
+            b.parent[v] = u;
+            int h = manhattan(vCell, goalCell);
+            b.open.push(key(ng + h, h), v);
+        }
+    }
+
+    /**
+     * 细化一段抽象边：跨簇边为相邻一步，簇内边在簇范围内 BFS 回溯。
+     * 规划后地图变化使该段不可达或最短长度变化时抛出 RouteUnavailableException，段长在规划时已定，不做绕行或原地补齐。
+     */
+    private int[] refineSegment(int fromCell, int toCell, int length) {
+        int[] cells = new int[length];
+        if (length == 0) return cells;
+        int w = gridMap.getWidth();
+        int fx = fromCell % w, fy = fromCell / w;
+        int tx = toCell % w, ty = toCell / w;
+        int cluster = clusterOf(fx, fy);
+        if (cluster != clusterOf(tx, ty)) {
+            if (!gridMap.isWalkable(toCell)) throw unavailable(fromCell, toCell);
+            cells[0] = toCell;
+            return cells;
+        }
+
+        Buffers b = buffers.get();
+        clusterBfs(cluster, fromCell, b, true);
+        if (localDist(cluster, toCell, b) != length) throw unavailable(fromCell, toCell);
+        int ox = (cluster % clustersX) * clusterSize, oy = (cluster / clustersX) * clusterSize;
+        int lw = Math.min(clusterSize, w - ox);
+        int local = (ty - oy) * lw + (tx - ox);
+        for (int k = length - 1; k >= 0; k--) {
+            cells[k] = gridMap.cellIndex(ox + local % lw, oy + local / lw);
+            local = b.localParent[local];
+        }
+        return cells;
+    }
+
+    private RouteUnavailableException unavailable(int fromCell, int toCell) {
+        return new RouteUnavailableException("分层路径段在地图变化后无法按原长度展开: "
+                + gridMap.location(fromCell) + " -> " + gridMap.location(toCell));
+    }
+
+    // --- 抽象图构建 ---
+
+    private AbstractGraph currentGraph() {
+        if (dirty) {
+            synchronized (this) {
+                if (dirty) {
+                    graph = buildGraph(graph, new HashSet<>(dirtyClusters));
+                    dirtyClusters.clear();
+                    dirty = false;
+                }
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public synchronized void onCellChanged(int x, int y, boolean walkable) {
+        dirtyClusters.add(clusterOf(x, y));
+        dirty = true;
+    }
+
+    /**
+     * @param previous 上一版抽象图，为 null 时全部簇重新计算
+     * @param changed 格子发生变化的簇；其余簇若入口格子与上一版相同，直接沿用上一版的簇内距离
+     */
+    private AbstractGraph buildGraph(AbstractGraph previous, Set<Integer> changed) {
+        IntList nodeCells = new IntList();
+        Map<Integer, Integer> cellToNode = new HashMap<>();
+        List<IntList> clusterNodeLists = new ArrayList<>(clustersX * clustersY);
+        for (int k = 0; k < clustersX * clustersY; k++) clusterNodeLists.add(new IntList());
+        IntList interFrom = new IntList(), interTo = new IntList();
+
+        // 1. 相邻簇之间的入口
+        int w = gridMap.getWidth(), h = gridMap.getHeight();
+        for (int ky = 0; ky < clustersY; ky++) {
+            for (int kx = 0; kx + 1 < clustersX; kx++) {
+                int x = (kx + 1) * clusterSize - 1;
+                int y0 = ky * clusterSize, y1 = Math.min(h, y0 + clusterSize);
+                int runStart = -1;
+                for (int y = y0; y <= y1; y++) {
+                    boolean open = y < y1 && gridMap.isWalkable(x, y) && gridMap.isWalkable(x + 1, y);
+                    if (open && runStart < 0) runStart = y;
+                    if (!open && runStart >= 0) {
+                        for (int ey : entrancePositions(runStart, y - 1)) {
+                            addTransition(gridMap.cellIndex(x, ey), gridMap.cellIndex(x + 1, ey),
+                                    nodeCells, cellToNode, clusterNodeLists, interFrom, interTo);
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+        for (int ky = 0; ky + 1 < clustersY; ky++) {
+            for (int kx = 0; kx < clustersX; kx++) {
+                int y = (ky + 1) * clusterSize - 1;
+                int x0 = kx * clusterSize, x1 = Math.min(w, x0 + clusterSize);
+                int runStart = -1;
+                for (int x = x0; x <= x1; x++) {
+                    boolean open = x < x1 && gridMap.isWalkable(x, y) && gridMap.isWalkable(x, y + 1);
+                    if (open && runStart < 0) runStart = x;
+                    if (!open && runStart >= 0) {
+                        for (int ex : entrancePositions(runStart, x - 1)) {
+                            addTransition(gridMap.cellIndex(ex, y), gridMap.cellIndex(ex, y + 1),
+                                    nodeCells, cellToNode, clusterNodeLists, interFrom, interTo);
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+
+        int n = nodeCells.size();
+        int[] cellsArr = nodeCells.toArray();
+        int[][] clusterNodes = new int[clusterNodeLists.size()][];
+        for (int k = 0; k < clusterNodes.length; k++) clusterNodes[k] = clusterNodeLists.get(k).toArray();
+
+        // 2. 簇内入口两两距离 (簇内下标, 簇内下标, 距离)：各簇独立，并行 BFS；未变化的簇沿用上一版
+        int[][] clusterCells = new int[clusterNodes.length][];
+        int[][] intraLocal = new int[clusterNodes.length][];
+        for (int k = 0; k < clusterNodes.length; k++) {
+            clusterCells[k] = new int[clusterNodes[k].length];
+            for (int i = 0; i < clusterNodes[k].length; i++) clusterCells[k][i] = cellsArr[clusterNodes[k][i]];
+        }
+        IntStream.range(0, clusterNodes.length).parallel().forEach(k -> {
+            int[] cells = clusterCells[k];
+            if (previous != null && !changed.contains(k) && Arrays.equals(cells, previous.clusterCells[k])) {
+                intraLocal[k] = previous.intraLocal[k];
+                return;
+            }
+            Buffers b = buffers.get();
+            IntList triples = new IntList();
+            for (int a = 0; a < cells.length && cells.length >= 2; a++) {
+                clusterBfs(k, cells[a], b, false);
+                for (int c = 0; c < cells.length; c++) {
+                    if (c == a) continue;
+                    int d = localDist(k, cells[c], b);
+                    if (d >= 0) { triples.add(a); triples.add(c); triples.add(d); }
+                }
+            }
+            intraLocal[k] = triples.toArray();
+        });
+        int[][] intraEdges = new int[clusterNodes.length][];
+        for (int k = 0; k < clusterNodes.length; k++) {
+            int[] t = intraLocal[k].clone();
+            for (int i = 0; i < t.length; i += 3) {
+                t[i] = clusterNodes[k][t[i]];
+                t[i + 1] = clusterNodes[k][t[i + 1]];
+            }
+            intraEdges[k] = t;
+        }
+
+        // 3. 压缩为 CSR 邻接表
+        int[] degree = new int[n + 1];
+        for (int i = 0; i < interFrom.size(); i++) degree[interFrom.get(i)]++;
+        for (int[] t : intraEdges) if (t != null) for (int i = 0; i < t.length; i += 3) degree[t[i]]++;
+        int[] edgeStart = new int[n + 1];
+        for (int i = 0; i < n; i++) edgeStart[i + 1] = edgeStart[i] + degree[i];
+        int[] fill = Arrays.copyOf(edgeStart, n);
+        int[] edgeTo = new int[edgeStart[n]];
+        int[] edgeCost = new int[edgeStart[n]];
+        for (int i = 0; i < interFrom.size(); i++) {
+            int e = fill[interFrom.get(i)]++;
+            edgeTo[e] = interTo.get(i);
+            edgeCost[e] = 1;
+        }
+        for (int[] t : intraEdges) {
+            if (t == null) continue;
+            for (int i = 0; i < t.length; i += 3) {
+                int e = fill[t[i]]++;
+                edgeTo[e] = t[i + 1];
+                edgeCost[e] = t[i + 2];
+            }
+        }
+        return new AbstractGraph(cellsArr, clusterNodes, edgeStart, edgeTo, edgeCost, clusterCells, intraLocal);
+    }
+
+    private static int[] entrancePositions(int from, int to) {
+        if (to - from + 1 < DOUBLE_ENTRANCE_RUN) return new int[]{(from + to) / 2};
+        return new int[]{from, to};
+    }
+
+    private void addTransition(int cellA, int cellB, IntList nodeCells, Map<Integer, Integer> cellToNode,
+                               List<IntList> clusterNodeLists, IntList interFrom, IntList interTo) {
+        int a = nodeFor(cellA, nodeCells, cellToNode, clusterNodeLists);
+        int b = nodeFor(cellB, nodeCells, cellToNode, clusterNodeLists);
+        interFrom.add(a); interTo.add(b);
+        interFrom.add(b); interTo.add(a);
+    }
+
+    private int nodeFor(int cell, IntList nodeCells, Map<Integer, Integer> cellToNode, List<IntList> clusterNodeLists) {
+        Integer existing = cellToNode.get(cell);
+        if (existing != null) return existing;
+        int id = nodeCells.size();
+        nodeCells.add(cell);
+        cellToNode.put(cell, id);
+        int w = gridMap.getWidth();
+        clusterNodeLists.get(clusterOf(cell % w, cell / w)).add(id);
+        return id;
+    }
+
+    // --- 簇内 BFS (局部坐标) ---
+
+    private void clusterBfs(int cluster, int sourceCell, Buffers b, boolean withParent) {
+        int w = gridMap.getWidth();
+        int ox = (cluster % clustersX) * clusterSize, oy = (cluster / clustersX) * clusterSize;
+        int lw = Math.min(clusterSize, w - ox), lh = Math.min(clusterSize, gridMap.getHeight() - oy);
+        int[] dist = b.localDist, queue = b.localQueue, parent = b.localParent;
+        Arrays.fill(dist, 0, lw * lh, -1);
+
+        int src = (sourceCell / w - oy) * lw + (sourceCell % w - ox);
+        int head = 0, tail = 0;
+        dist[src] = 0;
+        if (withParent) parent[src] = -1;
+        queue[tail++] = src;
+        while (head < tail) {
+            int cur = queue[head++];
+            int lx = cur % lw, ly = cur / lw;
+            for (int d = 0; d < 4; d++) {
+                int nx = lx + DX[d], ny = ly + DY[d];
+                if (nx < 0 || ny < 0 || nx >= lw || ny >= lh) continue;
+                if (!gridMap.isWalkable(ox + nx, oy + ny)) continue;
+                int next = ny * lw + nx;
+                if (dist[next] < 0) {
+                    dist[next] = dist[cur] + 1;
+                    if (withParent) parent[next] = cur;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private int localDist(int cluster, int cell, Buffers b) {
+        int w = gridMap.getWidth();
+        int ox = (cluster % clustersX) * clusterSize, oy = (cluster / clustersX) * clusterSize;
+        int lw = Math.min(clusterSize, w - ox);
+        return b.localDist[(cell / w - oy) * lw + (cell % w - ox)];
+    }
+
+    private int clusterOf(int x, int y) { return (y / clusterSize) * clustersX + (x / clusterSize); }
+
+    private int manhattan(int cellA, int cellB) {
+        int w = gridMap.getWidth();
+        return Math.abs(cellA % w - cellB % w) + Math.abs(cellA / w - cellB / w);
+    }
+
+    private boolean inBounds(Location loc) {
+        return loc.x() >= 0 && loc.x() < gridMap.getWidth() && loc.y() >= 0 && loc.y() < gridMap.getHeight();
+    }
+
+    private static long key(int f, int h) { return ((long) f << 32) | h; }
+
+    // 搜索缓冲为线程私有，批量查询可直接并行
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        return ParallelRouteBatch.solve(this, queries);
+    }
+
+    @Override
+    public long getLastExpandedNodes() { return buffers.get().expanded; }
+
+    public int getAbstractNodeCount() { return currentGraph().nodeCount(); }
+    public int getClusterSize() { return clusterSize; }
+
+    /**
+     * 抽象图：入口节点所在格子、各簇的入口列表、CSR 邻接表，以及供增量重建沿用的各簇入口格子与簇内距离；
+     * 构建后只读，可被多线程共享
+     */
+    private record AbstractGraph(int[] nodeCell, int[][] clusterNodes, int[] edgeStart, int[] edgeTo, int[] edgeCost,
+                                 int[][] clusterCells, int[][] intraLocal) {
+        int nodeCount() { return nodeCell.length; }
+    }
+
+    private static final class Buffers {
+        final int[] localDist;
+        final int[] localQueue;
+        final int[] localParent;
+        int[] g = new int[0], parent = new int[0], mark = new int[0];
+        int[] goalEdge = new int[0], goalMark = new int[0];
+        final IntMinHeap open = new IntMinHeap(256);
+        int epoch;
+        long expanded;
+
+        Buffers(int clusterSize) {
+            int cells = clusterSize * clusterSize;
+            this.localDist = new int[cells];
+            this.localQueue = new int[cells];
+            this.localParent = new int[cells];
+        }
+
+        void ensureAbstractCapacity(int size) {
+            if (g.length >= size) return;
+            g = new int[size];
+            parent = new int[size];
+            mark = new int[size];
+            goalEdge = new int[size];
+            goalMark = new int[size];
+            epoch = 0;
+        }
+
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                Arrays.fill(goalMark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+    /** 简单的可增长 int 列表，仅用于构建阶段 */
+    private static final class IntList {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        int get(int i) { return data[i]; }
+        int size() { return size; }
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+}
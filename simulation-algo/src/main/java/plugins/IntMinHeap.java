@@ -0,0 +1,67 @@
+package plugins;
+
+import java.util.Arrays;
+
+/**
+ * 原始类型二叉小顶堆：long 优先级 + int 负载，可反复 clear() 复用，搜索过程中不产生装箱对象。
+ * 非线程安全，由各规划器放在线程私有的搜索缓冲区中使用。
+ */
+final class IntMinHeap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    IntMinHeap(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        this.keys = new long[cap];
+        this.values = new int[cap];
+    }
+
+    void clear() { size = 0; }
+    boolean isEmpty() { return size == 0; }
+    int size() { return size; }
+
+    void push(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        // 上浮
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    long peekKey() { return keys[0]; }
+
+    /** 弹出堆顶并返回其负载值；调用前需先通过 peekKey() 读取优先级 */
+    int pop() {
+        int top = values[0];
+        int last = --size;
+        if (last > 0) {
+            long key = keys[last];
+            int value = values[last];
+            int i = 0;
+            // 下沉
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= last) break;
+                if (child + 1 < last && keys[child + 1] < keys[child]) child++;
+                if (key <= keys[child]) break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+        return top;
+    }
+}
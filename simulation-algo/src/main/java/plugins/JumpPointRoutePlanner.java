@@ -0,0 +1,164 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import map.GridMap;
+import map.Location;
+import map.RoutePath;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 4 连通等代价栅格上的跳点搜索 (JPS)。
+ * 沿直线"跳跃"，只在终点或可能转弯的格子 (垂直方向有可通行邻格) 处停下入队，
+ * 因此 JsonMapLoader 栅格化出的长直通道只在路口产生扩展，结果展开为与 GridRoutePlanner 相同的逐格路径。
+ * 开阔区域每格都是潜在转弯点，此时退化为普通 A*。
+ */
+public class JumpPointRoutePlanner implements RoutePlanner, SearchStatistics {
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+    private static final int NO_DIR = -1;
+
+    private final GridMap gridMap;
+    private final ThreadLocal<SearchBuffers> buffers;
+
+    public JumpPointRoutePlanner(GridMap gridMap) {
+        this.gridMap = gridMap;
+        this.buffers = ThreadLocal.withInitial(() -> new SearchBuffers(gridMap.getCellCount()));
+    }
+
+    @Override
+    public List<Location> searchRoute(Location start, Location end) {
+        if (start == null || end == null || start.equals(end)) return Collections.emptyList();
+        if (!inBounds(start) || !gridMap.isWalkable(end.x(), end.y())) return Collections.emptyList();
+
+        final int w = gridMap.getWidth();
+        final int tx = end.x(), ty = end.y();
+        final int source = gridMap.cellIndex(start.x(), start.y());
+        final int target = gridMap.cellIndex(tx, ty);
+
+        SearchBuffers b = buffers.get();
+        final int epoch = b.nextEpoch();
+        final int[] g = b.g, parent = b.parent, mark = b.mark, dir = b.dir;
+        IntMinHeap open = b.open;
+        open.clear();
+        b.expanded = 0;
+
+        g[source] = 0;
+        parent[source] = -1;
+        dir[source] = NO_DIR;
+        mark[source] = epoch;
+        int h0 = Math.abs(start.x() - tx) + Math.abs(start.y() - ty);
+        open.push(key(h0, h0), source);
+
+        while (!open.isEmpty()) {
+            int f = (int) (open.peekKey() >>> 32);
+            int cur = open.pop();
+            int cx = cur % w, cy = cur / w;
+            if (f != g[cur] + Math.abs(cx - tx) + Math.abs(cy - ty)) continue;
+            b.expanded++;
+            if (cur == target) break;
+
+            int from = dir[cur];
+            for (int d = 0; d < 4; d++) {
+                // 剪枝：不回头，只沿来向继续或向两侧转弯
+                if (from != NO_DIR && d == ((from + 2) & 3)) continue;
+                int jp = jump(cx, cy, DX[d], DY[d], tx, ty);
+                if (jp < 0) continue;
+                int jx = jp % w, jy = jp / w;
+                int ng = g[cur] + Math.abs(jx - cx) + Math.abs(jy - cy);
+                if (mark[jp] != epoch || ng < g[jp]) {
+                    mark[jp] = epoch;
+                    g[jp] = ng;
+                    parent[jp] = cur;
+                    dir[jp] = d;
+                    int h = Math.abs(jx - tx) + Math.abs(jy - ty);
+                    open.push(key(ng + h, h), jp);
+                }
+            }
+        }
+
+        if (mark[target] != epoch) return Collections.emptyList();
+        return expandPath(parent, source, target, g[target], w);
+    }
+
+    /**
+     * 从 (x, y) 沿 (dx, dy) 直线前进，返回遇到的第一个跳点的格子索引，被阻挡时返回 -1。
+     * 跳点：终点本身，或垂直于前进方向存在可通行邻格 (最优路径可能在此转弯)。
+     */
+    private int jump(int x, int y, int dx, int dy, int tx, int ty) {
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!gridMap.isWalkable(x, y)) return -1;
+            if (x == tx && y == ty) return gridMap.cellIndex(x, y);
+            if (dx != 0) {
+                if (gridMap.isWalkable(x, y + 1) || gridMap.isWalkable(x, y - 1)) return gridMap.cellIndex(x, y);
+            } else {
+                if (gridMap.isWalkable(x + 1, y) || gridMap.isWalkable(x - 1, y)) return gridMap.cellIndex(x, y);
+            }
+        }
+    }
+
+    // 跳点之间均为直线段，逆序回填中间格子得到逐格路径 (不含起点)
+    private List<Location> expandPath(int[] parent, int source, int target, int length, int w) {
+        int[] steps = new int[length];
+        int i = length - 1;
+        int cell = target;
+        while (cell != source) {
+            int prev = parent[cell];
+            int x = cell % w, y = cell / w;
+            int px = prev % w, py = prev / w;
+            int sx = Integer.signum(px - x), sy = Integer.signum(py - y);
+            while (x != px || y != py) {
+                steps[i--] = y * w + x;
+                x += sx;
+                y += sy;
+            }
+            cell = prev;
+        }
+        return new RoutePath(gridMap, steps);
+    }
+
+    // 搜索缓冲为线程私有，批量查询可直接并行
+    @Override
+    public List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        return ParallelRouteBatch.solve(this, queries);
+    }
+
+    @Override
+    public long getLastExpandedNodes() { return buffers.get().expanded; }
+
+    private boolean inBounds(Location loc) {
+        return loc.x() >= 0 && loc.x() < gridMap.getWidth() && loc.y() >= 0 && loc.y() < gridMap.getHeight();
+    }
+
+    private static long key(int f, int h) { return ((long) f << 32) | h; }
+
+    private static final class SearchBuffers {
+        final int[] g;
+        final int[] parent;
+        final int[] mark;
+        final int[] dir;
+        final IntMinHeap open;
+        int epoch;
+        long expanded;
+
+        SearchBuffers(int cells) {
+            this.g = new int[cells];
+            this.parent = new int[cells];
+            this.mark = new int[cells];
+            this.dir = new int[cells];
+            this.open = new IntMinHeap(256);
+        }
+
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package plugins;
+
+import map.GridMap;
+import map.Location;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分段惰性展开的只读路径：各段长度在规划时已知，逐格坐标在首次访问该段时才计算。
+ * 实体沿路径推进时只会细化当前所在段与终点所在段，长途路径不必一次性展开成逐格列表。
+ * 各段以 int[] 格子索引存放，get 返回 GridMap 的享元 Location；
+ * 已细化的段通过 AtomicReferenceArray 安全发布，可被多个实体/线程共享 (如经由路径缓存)。
+ * contains/indexOf 只扫描已细化的段，未细化的段先经细化器判断能否含有该格，不能则跳过，避免为一次查询展开整条路径；
+ * subList 返回的视图同样如此。某段无法细化时 get 抛出 RouteUnavailableException。
+ * 检查点按段写出：已细化的段写格子，未细化的段只写起讫格，恢复时经 SegmentSource 重建细化器，写出本身不触发细化。
+ */
+public final class LazyPath extends AbstractList<Location> implements RandomAccess {
+
+    /**
+     * 段细化器：返回第 segment 段的逐格格子索引 (不含段起点)，长度必须等于规划时给出的段长，返回后不得再修改；
+     * 按当前地图已无法展开时抛出 RouteUnavailableException，不得返回穿过障碍或凑数的路径
+     */
+    @FunctionalInterface
+    public interface SegmentRefiner {
+        int[] refine(int segment);
+
+        /** 未细化的第 segment 段是否可能经过 cell；返回 false 时 contains 不必细化该段 */
+        default boolean mayContain(int segment, int cell) { return true; }
+
+        /**
+         * 第 segment 段的起讫格 {起点, 终点}，检查点据此只写出未细化段的抽象描述；
+         * 返回 null 表示细化结果与地图状态无关 (如路网图的路段)，写出时可直接细化
+         */
+        default int[] endpoints(int segment) { return null; }
+    }
+
+    /** 能按起讫格与段长重建细化器的规划器，用于从检查点恢复未细化的段 */
+    @FunctionalInterface
+    public interface SegmentSource {
+        SegmentRefiner refiner(int[] fromCells, int[] toCells, int[] lengths);
+    }
+
+    private final int[] offsets;   // offsets[i] = 第 i 段之前的累计格数，末尾为总长
+    private final GridMap gridMap;
+    private final SegmentRefiner refiner;
+    private final AtomicReferenceArray<int[]> refined;
+
+    public LazyPath(GridMap gridMap, int[] segmentLengths, SegmentRefiner refiner) {
+        this(gridMap, segmentLengths, refiner, new int[segmentLengths.length][]);
+    }
+
+    /** @param refinedSegments 已细化的段 (其余为 null)，用于从检查点恢复 */
+    public LazyPath(GridMap gridMap, int[] segmentLengths, SegmentRefiner refiner, int[][] refinedSegments) {
+        this.gridMap = gridMap;
+        this.offsets = new int[segmentLengths.length + 1];
+        for (int i = 0; i < segmentLengths.length; i++) offsets[i + 1] = offsets[i] + segmentLengths[i];
+        this.refiner = refiner;
+        this.refined = new AtomicReferenceArray<>(refinedSegments);
+    }
+
+    @Override
+    public Location get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+        int seg = segmentOf(index);
+        return gridMap.location(segment(seg)[index - offsets[seg]]);
+    }
+
+    @Override
+    public int size() { return offsets[offsets.length - 1]; }
+
+    @Override
+    public boolean contains(Object o) { return indexOf(o) >= 0; }
+
+    @Override
+    public int indexOf(Object o) { return indexIn(o, 0, size()); }
+
+    @Override
+    public List<Location> subList(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size());
+        return new Range(fromIndex, toIndex);
+    }
+
+    public int segmentCount() { return offsets.length - 1; }
+    public int segmentLength(int seg) { return offsets[seg + 1] - offsets[seg]; }
+
+    /** 第 seg 段已细化的格子索引，未细化返回 null (不触发细化)；调用方不得修改 */
+    public int[] refinedCells(int seg) { return refined.get(seg); }
+
+    /** 第 seg 段的格子索引，未细化时先细化 */
+    public int[] segmentCells(int seg) { return segment(seg); }
+
+    /** 第 seg 段的起讫格，见 SegmentRefiner.endpoints */
+    public int[] segmentEndpoints(int seg) { return refiner.endpoints(seg); }
+
+    /** 已细化的段数，用于观察惰性展开的效果 */
+    public int refinedSegmentCount() {
+        int count = 0;
+        for (int i = 0; i < refined.length(); i++) if (refined.get(i) != null) count++;
+        return count;
+    }
+
+    private int[] segment(int seg) {
+        int[] cells = refined.get(seg);
+        if (cells == null) {
+            cells = refiner.refine(seg);
+            refined.compareAndSet(seg, null, cells);
+            cells = refined.get(seg);
+        }
+        return cells;
+    }
+
+    // [from, to) 内首次出现 o 的下标，未细化且不可能经过该格的段直接跳过
+    private int indexIn(Object o, int from, int to) {
+        if (from >= to || !(o instanceof Location loc) || !gridMap.isValid(loc.x(), loc.y())) return -1;
+        int cell = gridMap.cellIndex(loc.x(), loc.y());
+        for (int seg = segmentOf(from); seg < segmentCount() && offsets[seg] < to; seg++) {
+            int start = offsets[seg];
+            if (start == offsets[seg + 1]) continue;
+            int[] cells = refined.get(seg);
+            if (cells == null) {
+                if (!refiner.mayContain(seg, cell)) continue;
+                cells = segment(seg);
+            }
+            int end = Math.min(to, offsets[seg + 1]) - start;
+            for (int k = Math.max(from, start) - start; k < end; k++) {
+                if (cells[k] == cell) return start + k;
+            }
+        }
+        return -1;
+    }
+
+    // 二分查找 index 所在段 (跳过长度为 0 的段)
+    private int segmentOf(int index) {
+        int lo = 0, hi = offsets.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= index) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** [from, to) 的只读视图，contains/indexOf 同样按段跳过 */
+    private final class Range extends AbstractList<Location> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Location get(int index) {
+            Objects.checkIndex(index, to - from);
+            return LazyPath.this.get(from + index);
+        }
+
+        @Override
+        public int size() { return to - from; }
+
+        @Override
+        public boolean contains(Object o) { return indexOf(o) >= 0; }
+
+        @Override
+        public int indexOf(Object o) {
+            int i = indexIn(o, from, to);
+            return i < 0 ? -1 : i - from;
+        }
+
+        @Override
+        public List<Location> subList(int fromIndex, int toIndex) {
+            Objects.checkFromToIndex(fromIndex, toIndex, size());
+            return new Range(from + fromIndex, from + toIndex);
+        }
+    }
+}
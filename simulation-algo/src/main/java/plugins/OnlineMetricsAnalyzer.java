@@ -0,0 +1,175 @@
+package plugins;
+
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
+import decision.IncrementalMetricsAnalyzer;
+import entity.Entity;
+import entity.EntityType;
+import event.EventType;
+import event.SimEvent;
+import Instruction.Instruction;
+import map.Location;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 在线 KPI 分析器 (需在配置 strategies.analyzerClass 中显式选用)，内存只与设备数和在途任务数有关：
+ * - 吞吐量：QC_EXECUTION_COMPLETE 计数，总量及每台桥吊每小时
+ * - 任务周期：任务首次出现在事件中 (派工后的首个移动/到达) 到桥吊完成，分位数由 QuantileSketch 估计
+ * - 集卡空驶率：集卡相邻移动目标格的曼哈顿距离中，未载箱时所占比例；
+ *   同一指令的第一次 IT_EXECUTION_COMPLETE 为堆场装箱，第二次为码头卸箱
+ */
+public class OnlineMetricsAnalyzer implements IncrementalMetricsAnalyzer, Checkpointable {
+    private static final double HOUR_MS = 3_600_000.0;
+
+    private final QuantileSketch cycleTimes = new QuantileSketch(0.01);
+    // 桥吊按注册顺序输出
+    private final Map<String, long[]> qcThroughput = new LinkedHashMap<>();
+    private final Map<String, ItState> its = new HashMap<>();
+    // 在途任务 -> 首次出现时刻
+    private final Map<String, Long> taskStart = new HashMap<>();
+    private long eventCount;
+    private long throughput;
+    private long lastTime;
+    private long emptyDistance;
+    private long travelDistance;
+
+    private static final class ItState {
+        long position = SimEvent.NO_POSITION;
+        String loadedInstruction;
+    }
+
+    @Override
+    public void init(List<Entity> entities) {
+        for (Entity e : entities) {
+            if (e.getType() == EntityType.QC) qcThroughput.put(e.getId(), new long[1]);
+            if (e.getType() == EntityType.IT) {
+                ItState s = new ItState();
+                if (e.getCurrentLocation() != null) s.position = e.getCurrentLocation().pack();
+                its.put(e.getId(), s);
+            }
+        }
+    }
+
+    @Override
+    public void onEvent(SimEvent event) {
+        EventType type = event.getType();
+        lastTime = Math.max(lastTime, event.getTimestamp());
+        if (type == EventType.MOVE_STEP) {
+            ItState it = its.get(event.getEntityId());
+            if (it != null) recordMove(it, event.getPackedTargetPosition());
+        } else {
+            eventCount++;
+        }
+
+        String iid = event.getInstructionId();
+        if (iid == null) return;
+        switch (type) {
+            case QC_EXECUTION_COMPLETE -> {
+                throughput++;
+                qcThroughput.computeIfAbsent(event.getEntityId(), k -> new long[1])[0]++;
+                Long start = taskStart.remove(iid);
+                if (start != null) cycleTimes.add(event.getTimestamp() - start);
+            }
+            case IT_EXECUTION_COMPLETE -> {
+                ItState it = its.get(event.getEntityId());
+                if (it != null) it.loadedInstruction = iid.equals(it.loadedInstruction) ? null : iid;
+            }
+            // 作业完成不会是任务的首个事件，桥吊完成后同时刻的集卡完成不应重新开始计时
+            case YC_EXECUTION_COMPLETE -> {}
+            default -> taskStart.putIfAbsent(iid, event.getTimestamp());
+        }
+    }
+
+    private void recordMove(ItState it, long target) {
+        if (target == SimEvent.NO_POSITION) return;
+        if (it.position != SimEvent.NO_POSITION) {
+            int d = Math.abs(Location.unpackX(target) - Location.unpackX(it.position))
+                    + Math.abs(Location.unpackY(target) - Location.unpackY(it.position));
+            travelDistance += d;
+            if (it.loadedInstruction == null) emptyDistance += d;
+        }
+        it.position = target;
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        double hours = lastTime / HOUR_MS;
+        metrics.put("Total_Throughput", throughput);
+        metrics.put("Simulation_Event_Count", eventCount);
+        metrics.put("Simulated_Hours", hours);
+        metrics.put("Throughput_Per_Hour", hours > 0 ? throughput / hours : 0.0);
+        qcThroughput.forEach((qc, n) -> metrics.put(qc + "_Throughput_Per_Hour", hours > 0 ? n[0] / hours : 0.0));
+        metrics.put("Completed_Tasks_Timed", cycleTimes.getCount());
+        metrics.put("Cycle_Time_Mean_s", cycleTimes.getMean() / 1000);
+        metrics.put("Cycle_Time_P50_s", cycleTimes.quantile(0.5) / 1000);
+        metrics.put("Cycle_Time_P90_s", cycleTimes.quantile(0.9) / 1000);
+        metrics.put("Cycle_Time_P99_s", cycleTimes.quantile(0.99) / 1000);
+        metrics.put("IT_Empty_Travel_Ratio", travelDistance > 0 ? (double) emptyDistance / travelDistance : 0.0);
+        return metrics;
+    }
+
+    /** 任务周期草图，可跨运行合并 */
+    public QuantileSketch getCycleTimes() { return cycleTimes; }
+
+    // --- 检查点：恢复后 KPI 仍覆盖完整运行 ---
+
+    @Override
+    public String checkpointKey() { return "analyzer"; }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeLong(eventCount);
+        out.writeLong(throughput);
+        out.writeLong(lastTime);
+        out.writeLong(emptyDistance);
+        out.writeLong(travelDistance);
+        out.writeVarInt(qcThroughput.size());
+        for (Map.Entry<String, long[]> e : qcThroughput.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeLong(e.getValue()[0]);
+        }
+        out.writeVarInt(its.size());
+        for (Map.Entry<String, ItState> e : its.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeLong(e.getValue().position);
+            out.writeString(e.getValue().loadedInstruction);
+        }
+        out.writeVarInt(taskStart.size());
+        for (Map.Entry<String, Long> e : taskStart.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeLong(e.getValue());
+        }
+        cycleTimes.writeTo(out);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in, int version, Function<String, Instruction> instructions) throws IOException {
+        eventCount = in.readLong();
+        throughput = in.readLong();
+        lastTime = in.readLong();
+        emptyDistance = in.readLong();
+        travelDistance = in.readLong();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String qc = in.readString();
+            qcThroughput.computeIfAbsent(qc, k -> new long[1])[0] = in.readLong();
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            ItState s = its.computeIfAbsent(in.readString(), k -> new ItState());
+            s.position = in.readLong();
+            s.loadedInstruction = in.readString();
+        }
+        taskStart.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String iid = in.readString();
+            taskStart.put(iid, in.readLong());
+        }
+        cycleTimes.readFrom(in);
+    }
+}
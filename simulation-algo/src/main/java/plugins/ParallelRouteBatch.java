@@ -0,0 +1,64 @@
+package plugins;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import map.Location;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 在 ForkJoin 公共池上并行求解一批相互独立的寻路查询。
+ * 要求规划器线程安全：各插件的搜索缓冲均为线程私有 (ThreadLocal)，每个工作线程复用自己的一份。
+ */
+final class ParallelRouteBatch {
+    // 每个叶子任务至少处理的查询数，过小的批量直接在调用线程求解
+    private static final int LEAF_SIZE = 4;
+
+    private ParallelRouteBatch() {}
+
+    static List<List<Location>> solve(RoutePlanner planner, List<RouteQuery> queries) {
+        List<List<Location>> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        if (queries.size() <= LEAF_SIZE || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            for (int i = 0; i < results.size(); i++) results.set(i, search(planner, queries.get(i)));
+        } else {
+            ForkJoinPool.commonPool().invoke(new Slice(planner, queries, results, 0, results.size()));
+        }
+        return results;
+    }
+
+    private static List<Location> search(RoutePlanner planner, RouteQuery q) {
+        return planner.searchRoute(q.origin(), q.destination());
+    }
+
+    // 只在 ForkJoin 池内使用，不会被序列化
+    @SuppressWarnings("serial")
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RoutePlanner planner;
+        private final List<RouteQuery> queries;
+        private final List<List<Location>> results;
+        private final int from;
+        private final int to;
+
+        Slice(RoutePlanner planner, List<RouteQuery> queries, List<List<Location>> results, int from, int to) {
+            this.planner = planner;
+            this.queries = queries;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) results.set(i, search(planner, queries.get(i)));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Slice(planner, queries, results, from, mid), new Slice(planner, queries, results, mid, to));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package plugins;
+
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import java.io.IOException;
+
+/**
+ * 可合并的分位数草图 (对数分桶，思路同 DDSketch)：正数 x 落入桶 ceil(log_gamma x)，gamma = (1+a)/(1-a)，
+ * 查询返回桶的代表值，相对误差不超过 a。桶数只取决于数值范围 (毫秒到数天约一千个桶)，与样本数无关；
+ * 同精度的草图逐桶相加即可合并，如多次重复实验的结果汇总。
+ */
+public class QuantileSketch {
+    private final double relativeAccuracy;
+    private final double logGamma;
+    // counts[i] 为桶 offset + i 的样本数
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double sum;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) throw new IllegalArgumentException("相对精度须在 (0, 1) 内: " + relativeAccuracy);
+        this.relativeAccuracy = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    /** 记录一个非负样本 */
+    public void add(double value) {
+        count++;
+        sum += value;
+        if (value <= 0) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        ensureCapacity(index, index);
+        counts[index - offset]++;
+    }
+
+    /** 并入另一个同精度的草图 */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) throw new IllegalArgumentException("草图精度不同，无法合并");
+        if (other.counts.length > 0) {
+            ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) counts[other.offset + i - offset] += other.counts[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /** @param q 分位 [0, 1]；无样本时返回 NaN */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        long rank = (long) Math.ceil(q * count);
+        if (rank <= zeroCount) return 0;
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return 2 * Math.exp((offset + i) * logGamma) / (Math.exp(logGamma) + 1);
+        }
+        return 2 * Math.exp((offset + counts.length - 1) * logGamma) / (Math.exp(logGamma) + 1);
+    }
+
+    public long getCount() { return count; }
+    public double getMean() { return count == 0 ? Double.NaN : sum / count; }
+
+    private void ensureCapacity(int low, int high) {
+        if (counts.length == 0) {
+            counts = new long[high - low + 1];
+            offset = low;
+            return;
+        }
+        int newLow = Math.min(low, offset), newHigh = Math.max(high, offset + counts.length - 1);
+        if (newLow == offset && newHigh == offset + counts.length - 1) return;
+        long[] grown = new long[newHigh - newLow + 1];
+        System.arraycopy(counts, 0, grown, offset - newLow, counts.length);
+        counts = grown;
+        offset = newLow;
+    }
+
+    void writeTo(CheckpointOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(sum);
+        out.writeLong(zeroCount);
+        out.writeLong(offset);
+        out.writeVarInt(counts.length);
+        for (long c : counts) out.writeLong(c);
+    }
+
+    void readFrom(CheckpointInput in) throws IOException {
+        count = in.readLong();
+        sum = in.readDouble();
+        zeroCount = in.readLong();
+        offset = (int) in.readLong();
+        counts = new long[in.readVarInt()];
+        for (int i = 0; i < counts.length; i++) counts[i] = in.readLong();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuantileSketch[n=%d, 桶:%d, p50=%.1f, p99=%.1f]", count, counts.length, quantile(0.5), quantile(0.99));
+    }
+}
@@ -1,5 +1,8 @@
 package plugins;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
 import decision.TaskGenerator;
 import entity.Entity;
 import entity.EntityType;
@@ -7,21 +10,30 @@ import Instruction.Instruction;
 import Instruction.InstructionType;
 import map.GridMap;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
 
-public class RandomTaskGenerator implements TaskGenerator {
+public class RandomTaskGenerator implements TaskGenerator, Checkpointable {
     private final List<Entity> qcs = new ArrayList<>();
     private final List<Entity> ycs = new ArrayList<>();
     private final List<Entity> its = new ArrayList<>();
     private final GridMap gridMap;
-    private final Random random = new Random(12345);
+    private final RandomGenerator random;
     private int taskCounter = 1;
 
     // 参数化配置
     private final double generationProb;
 
     public RandomTaskGenerator(GridMap map, List<Entity> entities) {
+        this(map, entities, new CheckpointableRandom(12345));
+    }
+
+    /** 注入随机数流，多次重复实验各用独立的流；只有 CheckpointableRandom 支持检查点 */
+    public RandomTaskGenerator(GridMap map, List<Entity> entities, RandomGenerator random) {
         this.gridMap = map;
+        this.random = random;
         this.generationProb = 0.5; // 可以从外部注入
 
         for (Entity e : entities) {
@@ -61,6 +73,34 @@ public class RandomTaskGenerator implements TaskGenerator {
         return task;
     }
 
+    // --- 检查点：任务计数与随机数生成器状态 (CheckpointableRandom 的内部状态，一个 long) ---
+
+    @Override
+    public String checkpointKey() { return "taskGenerator"; }
+
+    // 版本 1 以 Java 序列化保存生成器，已不再读取
+    @Override
+    public int checkpointVersion() { return 2; }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeVarInt(taskCounter);
+        out.writeLong(checkpointableRandom().getState());
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in, int version, Function<String, Instruction> instructions) throws IOException {
+        if (version < 2) throw new IOException("不支持的任务生成器检查点版本: " + version);
+        CheckpointableRandom r = checkpointableRandom();
+        taskCounter = in.readVarInt();
+        r.setState(in.readLong());
+    }
+
+    private CheckpointableRandom checkpointableRandom() throws IOException {
+        if (random instanceof CheckpointableRandom r) return r;
+        throw new IOException("随机数生成器不支持检查点: " + random.getClass().getName());
+    }
+
     private String getEntityNodeId(Entity e) {
         if (e.getCurrentLocation() != null) {
             String nodeId = gridMap.getNodeId(e.getCurrentLocation());
@@ -0,0 +1,221 @@
+package plugins;
+
+import decision.TimedRoutePlanner;
+import map.GridMap;
+import map.Location;
+import map.RoutePath;
+import physics.PhysicsEngine;
+import physics.ReservationTable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 时空 A* (协同 A*)：状态为 (格子, 步数)，每步可移动到 4 邻格或原地等待，代价均为 1 个步长。
+ * 占用模型与 SimpleScheduler 的加锁时序一致：第 k 步进入的格子从第 k-1 步出发时加锁、第 k+1 步到达下一格时解锁，
+ * 因此路径上每格预约 [t(k-1), t(k+1))，终点预约到 FOREVER (停驻)，对向互换等边冲突也被格子区间覆盖。
+ * 未持有预约的设备 (停驻吊机、回退到静态路径的车辆) 所占格视为静态障碍；终点处豁免协同伙伴。
+ * 规划仅在调度线程调用，搜索缓冲按实例复用。
+ */
+public class ReservationRoutePlanner implements TimedRoutePlanner, SearchStatistics {
+    public static final int DEFAULT_HORIZON = 64;
+    private static final int MAX_EXPANSIONS = 200_000;
+    private static final int[] DX = {0, 0, 1, 0, -1};
+    private static final int[] DY = {0, 1, 0, -1, 0};
+
+    private final GridMap gridMap;
+    private final PhysicsEngine physicsEngine;
+    private final ReservationTable reservations;
+    private final int horizon;
+
+    // 搜索缓冲：状态按发现顺序编号
+    private int[] stateCell = new int[1024];
+    private int[] stateStep = new int[1024];
+    private int[] stateParent = new int[1024];
+    private final StateTable visited = new StateTable();
+    private final IntMinHeap open = new IntMinHeap(256);
+    private long expanded;
+
+    public ReservationRoutePlanner(GridMap gridMap, PhysicsEngine physicsEngine) {
+        this(gridMap, physicsEngine, DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon 相对无冲突最短步数，允许额外绕行/等待的最大步数
+     */
+    public ReservationRoutePlanner(GridMap gridMap, PhysicsEngine physicsEngine, int horizon) {
+        this.gridMap = gridMap;
+        this.physicsEngine = physicsEngine;
+        this.reservations = physicsEngine.getReservations();
+        this.horizon = horizon > 0 ? horizon : DEFAULT_HORIZON;
+    }
+
+    @Override
+    public synchronized List<Location> planTimed(String entityId, Location origin, Location destination,
+                                                 long departTime, long stepTime, Collection<String> partners) {
+        reservations.releaseAll(entityId);
+        expanded = 0;
+        if (origin == null || destination == null || origin.equals(destination) || stepTime <= 0) return null;
+        if (!inBounds(origin) || !gridMap.isWalkable(destination.x(), destination.y())) return null;
+
+        final int w = gridMap.getWidth();
+        final int tx = destination.x(), ty = destination.y();
+        final int source = gridMap.cellIndex(origin.x(), origin.y());
+        final int target = gridMap.cellIndex(tx, ty);
+        final int maxSteps = Math.abs(origin.x() - tx) + Math.abs(origin.y() - ty) + horizon;
+
+        visited.clear();
+        open.clear();
+        int count = 0;
+        addState(count, source, 0, -1);
+        visited.put(stateKey(source, 0), count);
+        open.push(key(maxSteps - horizon, maxSteps - horizon), count++);
+
+        int found = -1;
+        while (!open.isEmpty() && expanded < MAX_EXPANSIONS) {
+            int s = open.pop();
+            int cell = stateCell[s], k = stateStep[s];
+            expanded++;
+            // 到达终点且此后可一直停驻
+            if (cell == target && k > 0 && reservations.isFree(target, time(departTime, stepTime, k - 1),
+                    ReservationTable.FOREVER, entityId, partners)) {
+                found = s;
+                break;
+            }
+            if (k >= maxSteps) continue;
+
+            int cx = cell % w, cy = cell / w;
+            long enterFrom = time(departTime, stepTime, k);
+            long enterTo = time(departTime, stepTime, k + 2);
+            for (int d = 0; d < DX.length; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (!gridMap.isWalkable(nx, ny)) continue;
+                int next = gridMap.cellIndex(nx, ny);
+                long sk = stateKey(next, k + 1);
+                if (visited.contains(sk)) continue;
+                Collection<String> shared = (next == target) ? partners : null;
+                if (d != 0 && physicsEngine.isStaticallyBlocked(gridMap.location(nx, ny), entityId, shared)) continue;
+                if (!reservations.isFree(next, enterFrom, enterTo, entityId, shared)) continue;
+
+                visited.put(sk, count);
+                addState(count, next, k + 1, s);
+                int h = Math.abs(nx - tx) + Math.abs(ny - ty);
+                open.push(key(k + 1 + h, h), count++);
+            }
+        }
+        if (found < 0) return null;
+
+        int[] steps = new int[stateStep[found]];
+        for (int s = found; stateParent[s] >= 0; s = stateParent[s]) steps[stateStep[s] - 1] = stateCell[s];
+        reserve(entityId, source, steps, departTime, stepTime);
+        return new RoutePath(gridMap, steps);
+    }
+
+    // 连续停留在同一格的一段合并为一个预约区间
+    private void reserve(String entityId, int source, int[] steps, long departTime, long stepTime) {
+        int n = steps.length;
+        int runStart = 0;
+        int runCell = source;
+        for (int i = 1; i <= n; i++) {
+            int cell = steps[i - 1];
+            if (cell == runCell) continue;
+            long from = runStart == 0 ? departTime : time(departTime, stepTime, runStart - 1);
+            reservations.reserve(entityId, runCell, from, time(departTime, stepTime, i));
+            runStart = i;
+            runCell = cell;
+        }
+        long from = runStart == 0 ? departTime : time(departTime, stepTime, runStart - 1);
+        reservations.reserve(entityId, runCell, from, ReservationTable.FOREVER);
+    }
+
+    @Override
+    public void onProgress(String entityId, long now) { reservations.releaseExpired(entityId, now); }
+
+    @Override
+    public void release(String entityId) { reservations.releaseAll(entityId); }
+
+    @Override
+    public long getLastExpandedNodes() { return expanded; }
+
+    private void addState(int id, int cell, int step, int parent) {
+        if (id == stateCell.length) {
+            int cap = id * 2;
+            stateCell = Arrays.copyOf(stateCell, cap);
+            stateStep = Arrays.copyOf(stateStep, cap);
+            stateParent = Arrays.copyOf(stateParent, cap);
+        }
+        stateCell[id] = cell;
+        stateStep[id] = step;
+        stateParent[id] = parent;
+    }
+
+    private boolean inBounds(Location loc) {
+        return loc.x() >= 0 && loc.x() < gridMap.getWidth() && loc.y() >= 0 && loc.y() < gridMap.getHeight();
+    }
+
+    private static long time(long depart, long stepTime, int k) { return depart + k * stepTime; }
+
+    private static long stateKey(int cell, int step) { return ((long) step << 32) | cell; }
+
+    private static long key(int f, int h) { return ((long) f << 32) | h; }
+
+    /**
+     * (格子, 步数) 状态键 -> 状态编号的开放寻址表，线性探测，跨搜索复用。
+     * 槽位以代号标记占用，clear 只需递增代号，不必清空数组。
+     */
+    private static final class StateTable {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int[] stamps = new int[1024];
+        private int epoch = 1;
+        private int size;
+
+        void clear() {
+            size = 0;
+            if (++epoch == 0) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean contains(long key) { return stamps[find(key)] == epoch; }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int slot = find(key);
+            if (stamps[slot] != epoch) {
+                stamps[slot] = epoch;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (stamps[slot] == epoch && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values, oldStamps = stamps;
+            keys = new long[oldKeys.length * 2];
+            values = new int[keys.length];
+            stamps = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStamps[i] != epoch) continue;
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                stamps[slot] = epoch;
+            }
+        }
+
+        private static int mix(long x) {
+            x *= 0x9E3779B97F4A7C15L;
+            return (int) (x ^ (x >>> 32));
+        }
+    }
+}
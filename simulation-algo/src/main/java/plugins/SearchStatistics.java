@@ -0,0 +1,9 @@
+package plugins;
+
+/**
+ * 寻路插件的搜索统计，供基准测试比较不同算法的扩展节点数
+ */
+public interface SearchStatistics {
+    /** 当前线程最近一次搜索扩展 (出队) 的节点数 */
+    long getLastExpandedNodes();
+}
@@ -0,0 +1,19 @@
+package decision;
+
+import entity.Entity;
+import event.EventSink;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在线 KPI 分析：作为事件订阅者逐个累计指标，内存不随仿真时长增长，无需保留事件日志，也无需运行后再遍历一遍。
+ * 运行中可随时取快照，用于提前终止表现不佳的配置。
+ * 回调与快照均须在引擎线程上调用 (如两次 runUntil 之间，或经 PacedSimulationEngine.inject)。
+ */
+public interface IncrementalMetricsAnalyzer extends EventSink {
+    /** 装配时以注册顺序的实体调用一次，早于任何事件 */
+    default void init(List<Entity> entities) {}
+
+    /** 截至最近一个事件的 KPI 指标名称与数值 */
+    Map<String, Object> snapshot();
+}
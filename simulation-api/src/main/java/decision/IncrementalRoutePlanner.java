@@ -0,0 +1,16 @@
+package decision;
+import map.Location;
+import java.util.List;
+
+/**
+ * 增量寻路：为每个移动中的设备保留一个规划会话，地图变化后只修复受影响的部分，而不是从头搜索。
+ */
+public interface IncrementalRoutePlanner extends RoutePlanner {
+    // 开启 (或重置) 会话并返回初始路径，不含起点
+    List<Location> openSession(String sessionId, Location origin, Location destination);
+
+    // 设备位于 current 时按最新地图修复路径；无此会话返回 null，不可达返回空列表
+    List<Location> replan(String sessionId, Location current);
+
+    void closeSession(String sessionId);
+}
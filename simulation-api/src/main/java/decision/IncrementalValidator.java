@@ -0,0 +1,13 @@
+package decision;
+
+import event.EventSink;
+import java.util.List;
+
+/**
+ * 在线校验：作为事件订阅者逐个检查，不依赖内存中的事件日志，关闭日志保留 (如异步写出) 时仍可执行。
+ * 与事件日志一致，只需校验非 MOVE_STEP 事件；从检查点恢复时引擎会先补送检查点中保留的事件。
+ */
+public interface IncrementalValidator extends EventSink {
+    /** 截至最近一个事件的错误或警告信息，为空表示通过 */
+    List<String> report();
+}
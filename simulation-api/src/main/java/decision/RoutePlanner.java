@@ -1,7 +1,15 @@
 package decision;
 import map.Location;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface RoutePlanner {
     List<Location> searchRoute(Location origin, Location destination);
-}
\ No newline at end of file
+
+    // 批量寻路：结果与 queries 一一对应。默认逐个求解，线程安全的插件可覆盖为并行实现
+    default List<List<Location>> searchRoutes(List<RouteQuery> queries) {
+        List<List<Location>> results = new ArrayList<>(queries.size());
+        for (RouteQuery q : queries) results.add(searchRoute(q.origin(), q.destination()));
+        return results;
+    }
+}
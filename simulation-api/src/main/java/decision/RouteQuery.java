@@ -0,0 +1,5 @@
+package decision;
+import map.Location;
+
+// 批量寻路中的单个查询
+public record RouteQuery(Location origin, Location destination) {}
@@ -0,0 +1,13 @@
+package decision;
+
+/**
+ * 惰性路径的某段在访问时已无法按规划长度展开 (规划后地图发生变化)。
+ * 规划器不得为此编造穿过障碍的路径，调用方应从当前位置重新规划。
+ */
+public class RouteUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public RouteUnavailableException(String message) {
+        super(message);
+    }
+}
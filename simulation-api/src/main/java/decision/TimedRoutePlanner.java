@@ -0,0 +1,20 @@
+package decision;
+import map.Location;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 时空协同寻路：规划时避开其他设备已预约的 (格子, 时间段)，成功后为本设备登记预约。
+ * 返回的逐格路径不含起点，每格耗时 stepTime；原地等待以重复的当前格表示。
+ */
+public interface TimedRoutePlanner {
+    // 规划并预约；无可行解时返回 null，且该设备不再持有任何预约
+    List<Location> planTimed(String entityId, Location origin, Location destination,
+                             long departTime, long stepTime, Collection<String> partners);
+
+    // 设备前进到 now 时释放已过期的预约
+    void onProgress(String entityId, long now);
+
+    // 放弃预约 (偏离预约路径时调用)
+    void release(String entityId);
+}
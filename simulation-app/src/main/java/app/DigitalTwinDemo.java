@@ -0,0 +1,87 @@
+package app;
+
+import core.PacedSimulationEngine;
+import decision.RoutePlanner;
+import entity.Entity;
+import Instruction.Instruction;
+import io.ConfigLoader;
+import io.EntityLoader;
+import io.JsonMapLoader;
+import io.TaskLoader;
+import map.CellChangeListener;
+import map.GridMap;
+import map.NodeDistanceMatrix;
+import plugins.CheckpointableRandom;
+import plugins.RandomTaskGenerator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数字孪生演示：按墙钟倍速运行一段仿真时间，运行中由另一线程注入新任务并临时封闭地图中部的格子，
+ * 结束后输出步进滞后与抖动统计。
+ * 用法: DigitalTwinDemo [配置文件] [倍速] [仿真时长 ms]
+ */
+public class DigitalTwinDemo {
+
+    public static void main(String[] args) throws Exception {
+        String configPath = args.length > 0 ? args[0] : "config/simulation-config.json";
+        double factor = args.length > 1 ? Double.parseDouble(args[1]) : 100.0;
+        long span = args.length > 2 ? Long.parseLong(args[2]) : 300_000L;
+
+        var config = withRealTime(new ConfigLoader().load(configPath), factor);
+        GridMap gridMap = new JsonMapLoader().loadGridMap(config.paths().mapFile(), config.mapSettings().cellSize());
+        List<Entity> entities = new EntityLoader().loadFromFile(config.paths().entityFile());
+        List<Instruction> tasks = new TaskLoader().loadFromFile(config.paths().taskFile());
+        NodeDistanceMatrix distances = Main.buildDistances(config, gridMap);
+        if (distances != null) gridMap.addCellChangeListener(distances);
+        RoutePlanner routePlanner = Main.createRoutePlanner(config.strategies().routePlannerClass(), config.routing(), gridMap, distances);
+        if (routePlanner instanceof CellChangeListener l) gridMap.addCellChangeListener(l);
+
+        Main.Simulation sim = Main.assemble(config, gridMap, distances, routePlanner, entities, tasks, null, false);
+        PacedSimulationEngine engine = (PacedSimulationEngine) sim.engine();
+        engine.setEndTime(Math.min(engine.getEndTime(), span));
+
+        // 外部指令源：按墙钟时刻提交，与引擎线程并发
+        // 生成任务要读设备当前位置，必须放在注入的命令里，由引擎线程在两次事件之间执行
+        long wallSpanMs = (long) (engine.getEndTime() / factor);
+        RandomTaskGenerator source = new RandomTaskGenerator(gridMap, entities, new CheckpointableRandom(2024));
+        int cx = gridMap.getWidth() / 2, cy = gridMap.getHeight() / 2;
+        boolean closable = gridMap.isWalkable(cx, cy);
+        ScheduledExecutorService feeder = Executors.newSingleThreadScheduledExecutor();
+        for (int i = 1; i <= 3; i++) {
+            int n = i;
+            feeder.schedule(() -> engine.inject((s, now) -> {
+                Instruction task = null;
+                for (int tries = 0; task == null && tries < 100; tries++) task = source.generate(now);
+                if (task == null) return;
+                task.setInstructionId("TWIN_TASK_" + n);
+                s.injectInstruction(now, task);
+            }), wallSpanMs * i / 4, TimeUnit.MILLISECONDS);
+        }
+        if (closable) {
+            feeder.schedule(() -> engine.injectCellChange(cx, cy, false), wallSpanMs / 3, TimeUnit.MILLISECONDS);
+            feeder.schedule(() -> engine.injectCellChange(cx, cy, true), wallSpanMs * 2 / 3, TimeUnit.MILLISECONDS);
+        }
+
+        long wallStart = System.nanoTime();
+        try {
+            engine.start();
+        } finally {
+            feeder.shutdownNow();
+        }
+        double wallMs = (System.nanoTime() - wallStart) / 1e6;
+        System.out.printf(">>> 仿真 %d ms 用时墙钟 %.0f ms (目标 %d ms, 倍速 %.1f)%n", engine.getEndTime(), wallMs, wallSpanMs, factor);
+    }
+
+    private static ConfigLoader.AppConfig withRealTime(ConfigLoader.AppConfig c, double factor) {
+        var e = c.engine();
+        var engine = (e == null)
+                ? new ConfigLoader.EngineSettings(false, null, 0, 1, 0, 0, null, factor)
+                : new ConfigLoader.EngineSettings(e.entityStateStore(), e.eventQueueClass(), e.macroStepCells(),
+                        e.parallelRegions(), e.parallelThreads(), 0, e.checkpointDir(), factor);
+        return new ConfigLoader.AppConfig(c.simulation(), c.timeSettings(), c.mapSettings(), c.output(), c.paths(),
+                c.strategies(), c.routing(), engine);
+    }
+}
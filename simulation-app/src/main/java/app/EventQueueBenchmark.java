@@ -0,0 +1,77 @@
+package app;
+
+import event.CalendarEventQueue;
+import event.EventQueue;
+import event.EventType;
+import event.HeapEventQueue;
+import event.SimEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 事件队列基准 (经典 hold 模型)：队列预置 N 个事件，之后每次取出最早事件并在其时间之后按给定间隔分布插入一个新事件。
+ * 比较各实现每次 hold 的耗时，并校验出队序列 (时间戳 + 入队序号) 完全一致。
+ * 用法: EventQueueBenchmark [hold 次数]
+ */
+public class EventQueueBenchmark {
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int[] QUEUE_SIZES = {1_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        int holds = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        Map<String, Supplier<EventQueue>> queues = new LinkedHashMap<>();
+        queues.put("HeapEventQueue", HeapEventQueue::new);
+        queues.put("CalendarEventQueue", CalendarEventQueue::new);
+
+        for (int n : QUEUE_SIZES) {
+            System.out.println("=== 队列规模 " + n + ", hold " + holds + " 次 ===");
+            System.out.printf("%-26s %-20s %12s %10s%n", "increment", "queue", "ns/hold", "order");
+            run("步长 1000ms (大量同刻)", n, holds, queues, r -> () -> 1000);
+            run("均匀 [500, 1500)", n, holds, queues, r -> () -> 500 + r.nextInt(1000));
+            run("指数 (均值 1000)", n, holds, queues, r -> () -> (long) (-1000 * Math.log(1 - r.nextDouble())));
+            // 移动步 (1000ms) 与任务生成 (10000ms) 混合
+            run("双峰 1000/10000", n, holds, queues, r -> () -> r.nextInt(10) == 0 ? 10_000 : 1000);
+        }
+    }
+
+    private interface Distribution {
+        LongSupplier create(Random random);
+    }
+
+    private static void run(String title, int n, int holds, Map<String, Supplier<EventQueue>> queues, Distribution dist) {
+        long reference = 0;
+        boolean first = true;
+        for (Map.Entry<String, Supplier<EventQueue>> e : queues.entrySet()) {
+            for (int r = 0; r < WARMUP_ROUNDS; r++) hold(e.getValue().get(), n, holds / 4, dist.create(new Random(7)));
+            long start = System.nanoTime();
+            long checksum = hold(e.getValue().get(), n, holds, dist.create(new Random(7)));
+            long elapsed = System.nanoTime() - start;
+
+            String order;
+            if (first) {
+                reference = checksum;
+                order = "ref";
+                first = false;
+            } else {
+                order = (checksum == reference) ? "same" : "DIFF";
+            }
+            System.out.printf("%-26s %-20s %12.1f %10s%n", title, e.getKey(), elapsed / (double) holds, order);
+        }
+    }
+
+    // 返回出队序列的校验和，用于确认各实现的出队顺序一致
+    private static long hold(EventQueue queue, int n, int holds, LongSupplier increment) {
+        for (int i = 0; i < n; i++) queue.add(new SimEvent(increment.getAsLong(), EventType.MOVE_STEP, "E"));
+        long checksum = 0;
+        for (int i = 0; i < holds; i++) {
+            SimEvent e = queue.poll();
+            checksum = checksum * 31 + e.getTimestamp() * 1_000_003 + e.getSequence();
+            queue.add(new SimEvent(e.getTimestamp() + increment.getAsLong(), EventType.MOVE_STEP, "E"));
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,110 @@
+package app;
+
+import decision.RoutePlanner;
+import entity.Entity;
+import event.EventType;
+import event.SimEvent;
+import Instruction.Instruction;
+import io.ConfigLoader;
+import io.EntityLoader;
+import io.JsonMapLoader;
+import io.TaskLoader;
+import map.CellChangeListener;
+import map.GridMap;
+import map.NodeDistanceMatrix;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 分叉假设分析基准：父仿真推进到分叉时刻后暂停，取一份快照分叉出多个子仿真，
+ * 各子仿真按不同宏步设置 (0 即与父仿真相同) 并行向前推演 horizon；父仿真随后继续运行同一段时间。
+ * 输出快照大小、快照/分叉耗时、各分叉的吞吐量，并校验未改动的分叉与父仿真的事件序列一致。
+ * 用法: ForkBenchmark [配置文件] [分叉时刻 ms] [分叉数] [推演时长 ms]
+ */
+public class ForkBenchmark {
+    private static final int[] MACRO_VARIANTS = {0, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        String configPath = args.length > 0 ? args[0] : "config/simulation-config.json";
+        long forkTime = args.length > 1 ? Long.parseLong(args[1]) : 300_000L;
+        int forks = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        long horizon = args.length > 3 ? Long.parseLong(args[3]) : 1_800_000L;
+
+        var config = new ConfigLoader().load(configPath);
+        GridMap gridMap = new JsonMapLoader().loadGridMap(config.paths().mapFile(), config.mapSettings().cellSize());
+        List<Entity> entities = new EntityLoader().loadFromFile(config.paths().entityFile());
+        List<Instruction> tasks = new TaskLoader().loadFromFile(config.paths().taskFile());
+        NodeDistanceMatrix distances = Main.buildDistances(config, gridMap);
+        if (distances != null) gridMap.addCellChangeListener(distances);
+        RoutePlanner routePlanner = Main.createRoutePlanner(config.strategies().routePlannerClass(), config.routing(), gridMap, distances);
+        if (routePlanner instanceof CellChangeListener l) gridMap.addCellChangeListener(l);
+
+        Main.Simulation parent = Main.assemble(config, gridMap, distances, routePlanner, entities, tasks, null, true);
+        parent.engine().runUntil(forkTime);
+        long pausedAt = parent.engine().getCurrentTime();
+        // 推演不超过父仿真的结束时间，便于逐事件对照
+        horizon = Math.min(horizon, parent.engine().getEndTime() - pausedAt);
+        int logAtFork = parent.engine().getEventLog().size();
+
+        long t0 = System.nanoTime();
+        byte[] snapshot = parent.engine().snapshot();
+        long snapshotNs = System.nanoTime() - t0;
+
+        // 分叉的装配在父仿真线程上完成 (读取父仿真实体)，之后并行推演
+        List<Main.Simulation> children = new ArrayList<>(forks);
+        long forkNs = 0;
+        for (int i = 0; i < forks; i++) {
+            long s = System.nanoTime();
+            Main.Simulation child = Main.fork(config, parent, snapshot, horizon);
+            forkNs += System.nanoTime() - s;
+            child.scheduler().setMacroStepCells(MACRO_VARIANTS[i % MACRO_VARIANTS.length]);
+            children.add(child);
+        }
+        System.out.printf(">>> 分叉时刻 %d (父日志 %d 条), 快照 %d 字节, 快照耗时 %.1f us, 平均分叉耗时 %.1f us%n",
+                pausedAt, logAtFork, snapshot.length, snapshotNs / 1e3, forkNs / 1e3 / Math.max(1, forks));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        long runStart = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Main.Simulation child : children) futures.add(pool.submit(() -> child.engine().runUntil(Long.MAX_VALUE)));
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf(">>> %d 个分叉并行推演 %d ms 仿真时间, 耗时 %.1f ms%n", forks, horizon, (System.nanoTime() - runStart) / 1e6);
+
+        parent.engine().runUntil(pausedAt + horizon);
+        List<SimEvent> parentTail = parent.engine().getEventLog().subList(logAtFork, parent.engine().getEventLog().size());
+        boolean unchangedMacro = config.engine() == null || config.engine().macroStepCells() <= 1;
+
+        System.out.printf("%-6s %-10s %10s %10s %12s%n", "fork", "macroStep", "events", "throughput", "vs parent");
+        for (int i = 0; i < forks; i++) {
+            List<SimEvent> log = children.get(i).engine().getEventLog();
+            int macro = MACRO_VARIANTS[i % MACRO_VARIANTS.length];
+            String parity = (macro == 0 && unchangedMacro) ? (sameEvents(log, parentTail) ? "same" : "DIFF") : "-";
+            System.out.printf("%-6d %-10d %10d %10d %12s%n", i, macro, log.size(), throughput(log), parity);
+        }
+        System.out.printf("%-6s %-10s %10d %10d %12s%n", "parent", "-", parentTail.size(), throughput(parentTail), "ref");
+    }
+
+    private static long throughput(List<SimEvent> log) {
+        return log.stream().filter(e -> e.getType() == EventType.QC_EXECUTION_COMPLETE).count();
+    }
+
+    private static boolean sameEvents(List<SimEvent> a, List<SimEvent> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            SimEvent x = a.get(i), y = b.get(i);
+            if (x.getTimestamp() != y.getTimestamp() || x.getType() != y.getType()
+                    || !Objects.equals(x.getEntityId(), y.getEntityId())
+                    || !Objects.equals(x.getInstructionId(), y.getInstructionId())
+                    || x.getPackedTargetPosition() != y.getPackedTargetPosition()) return false;
+        }
+        return true;
+    }
+}
@@ -1,18 +1,34 @@
 package app;
 
 import algo.SimpleScheduler;
+import core.PacedSimulationEngine;
+import core.PartitionedSimulationEngine;
 import core.SimulationEngine;
 import decision.*;
 import entity.Entity;
+import entity.EntityStateStore;
+import event.EventQueue;
+import event.EventSink;
 import Instruction.Instruction;
 import io.*;
+import map.CellChangeListener;
 import map.GridMap;
+import map.NodeDistanceMatrix;
+import map.RegionPartition;
 import physics.PhysicsEngine;
+import plugins.CachingRoutePlanner;
+import plugins.LazyPath;
+import plugins.DStarLiteRoutePlanner;
 import plugins.GridTimeEstimator;
+import plugins.ReservationRoutePlanner;
 import time.TimeEstimationModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
@@ -28,54 +44,216 @@ public class Main {
             List<Entity> entities = new EntityLoader().loadFromFile(config.paths().entityFile());
             List<Instruction> tasks = new TaskLoader().loadFromFile(config.paths().taskFile());
 
-            // 2. 初始化组件
-            PhysicsEngine physics = new PhysicsEngine(gridMap);
-            TimeEstimationModule timeModule = new GridTimeEstimator(gridMap);
+            // 2. 初始化共享组件
+            NodeDistanceMatrix distances = buildDistances(config, gridMap);
+            if (distances != null) gridMap.addCellChangeListener(distances);
+            RoutePlanner routePlanner = createRoutePlanner(config.strategies().routePlannerClass(), config.routing(), gridMap, distances);
+            if (routePlanner instanceof CellChangeListener l) gridMap.addCellChangeListener(l);
 
-            RoutePlanner routePlanner = loadPlugin(config.strategies().routePlannerClass(), GridMap.class, gridMap);
+            // 3. 装配并运行
+            Simulation sim = assemble(config, gridMap, distances, routePlanner, entities, tasks, null, false);
+            if (args.length > 1) {
+                long at = sim.engine().restoreCheckpoint(Path.of(args[1]));
+                System.out.println(">>> 已从检查点恢复: " + args[1] + " (仿真时刻 " + at + ")");
+            }
+            // 流式日志边运行边写出，先补写检查点中已记录的事件；异步写出时不再在内存中保留日志，
+            // 校验改由在线校验器 (IncrementalValidator) 完成，不支持在线校验的校验器在报告中注明跳过
+            var output = config.output();
+            EventSink streamingLog = createStreamingLog(output);
+            if (streamingLog != null) {
+                sim.engine().getEventLog().forEach(streamingLog::onEvent);
+                if (output.asyncWriter()) sim.engine().setRetainEventLog(false);
+                sim.engine().addEventSink(streamingLog);
+            }
+            sim.engine().start();
+            if (sim.routeCache() != null) System.out.println(">>> " + sim.routeCache());
+            System.out.println(">>> " + sim.scheduler().getEventPool());
 
-            Object dispatcherObj = loadPlugin(config.strategies().taskDispatcherClass());
-            TaskAllocator taskAllocator = (TaskAllocator) dispatcherObj;
-            TrafficController trafficController = (TrafficController) dispatcherObj;
+            if (streamingLog != null) System.out.println(">>> [成功] " + streamingLog);
+            else new LogWriter().writeLog(sim.engine().getEventLog(), output.logDir());
 
-            TaskGenerator generator = loadPluginMulti(config.strategies().taskGeneratorClass(),
-                    new Class<?>[]{GridMap.class, List.class}, new Object[]{gridMap, entities});
+        } catch (Exception e) {
+            logger.error("仿真运行失败", e);
+            e.printStackTrace();
+        }
+    }
 
-            SimulationValidator validator = loadPlugin(config.strategies().validatorClass());
-            MetricsAnalyzer analyzer = loadPlugin(config.strategies().analyzerClass());
+    /** 按输出配置创建边运行边写出的日志订阅者；整体写出 JSON 时返回 null */
+    static EventSink createStreamingLog(ConfigLoader.OutputSettings output) throws IOException {
+        String logDir = output.logDir();
+        if (logDir == null || logDir.isEmpty()) return null;
+        boolean binary = "binary".equalsIgnoreCase(output.logFormat());
+        if (output.asyncWriter()) {
+            var policy = (output.overflowPolicy() != null && !output.overflowPolicy().isEmpty())
+                    ? AsyncLogWriter.OverflowPolicy.valueOf(output.overflowPolicy()) : AsyncLogWriter.OverflowPolicy.BLOCK;
+            return AsyncLogWriter.start(LogWriter.newLogFile(logDir, "").toString(), binary, output.includeMoveSteps(), policy,
+                    output.ringCapacity(), output.rollBytes(), output.rollInterval(), output.compressionLevel());
+        }
+        return binary ? new BinaryLogWriter(LogWriter.newLogFile(logDir, ".plog"), output.includeMoveSteps(), 4096) : null;
+    }
 
-            // 3. 构建调度器 (注入配置参数)
-            // 假设 config 中有 defaultWaitTime 和 taskGenInterval 字段，或者使用默认值
-            long defaultWaitTime = 1000;
-            long taskGenInterval = 10000;
+    /**
+     * 一次仿真运行的组件，以及可在分叉间共享的只读数据 (地图、距离矩阵、调度器所用寻路插件、按注册顺序的实体)
+     */
+    record Simulation(SimulationEngine engine, SimpleScheduler scheduler, CachingRoutePlanner routeCache,
+                      GridMap gridMap, NodeDistanceMatrix distances, RoutePlanner routePlanner, List<Entity> entities) {}
 
-            SimpleScheduler scheduler = new SimpleScheduler(
-                    taskAllocator, trafficController,
-                    routePlanner, timeModule, physics, gridMap, generator,
-                    defaultWaitTime, taskGenInterval
-            );
+    static NodeDistanceMatrix buildDistances(ConfigLoader.AppConfig config, GridMap gridMap) {
+        var routing = config.routing();
+        if (routing == null || !routing.precomputeDistances()) return null;
+        long t0 = System.currentTimeMillis();
+        NodeDistanceMatrix distances = NodeDistanceMatrix.build(gridMap, routing.exactHeuristic());
+        System.out.println(">>> " + distances + " 耗时 " + (System.currentTimeMillis() - t0) + " ms");
+        return distances;
+    }
 
-            // 4. 注册数据
-            entities.forEach(scheduler::registerEntity);
-            tasks.forEach(scheduler::addInstruction);
+    /**
+     * 以已加载的地图、距离矩阵与基础寻路插件装配一次仿真，完成实体/任务注册与初始化，返回待 start 的引擎。
+     * 地图、距离矩阵与基础寻路插件可在多次运行间共享；实体与任务由本次运行独占。
+     * @param random 非空时注入任务生成插件 (需提供 (GridMap, List, RandomGenerator) 构造器)
+     * @param replication 重复实验模式：不在共享地图上注册监听 (地图只读)、使用顺序引擎且不输出过程日志
+     */
+    static Simulation assemble(ConfigLoader.AppConfig config, GridMap gridMap, NodeDistanceMatrix distances,
+                               RoutePlanner routePlanner, List<Entity> entities, List<Instruction> tasks,
+                               RandomGenerator random, boolean replication) throws Exception {
+        var routing = config.routing();
+        PhysicsEngine physics = new PhysicsEngine(gridMap);
+        TimeEstimationModule timeModule = loadPlugin(config.strategies().timeEstimatorClass(), GridMap.class, gridMap);
+        if (timeModule == null) timeModule = new GridTimeEstimator(gridMap);
 
-            // 5. 初始化 (生成初始事件)
-            scheduler.init();
+        // 传入的已是路径缓存 (如分叉沿用父仿真的缓存) 时直接共享，不再套一层
+        CachingRoutePlanner routeCache = (routePlanner instanceof CachingRoutePlanner c) ? c : null;
+        if (routeCache == null && routing != null && routing.cacheSize() > 0) {
+            routeCache = new CachingRoutePlanner(routePlanner, routing.cacheSize());
+            if (!replication) gridMap.addCellChangeListener(routeCache);
+            routePlanner = routeCache;
+        }
 
-            // 6. 运行引擎
-            var maxEvents = Math.max(config.timeSettings().maxEvents(), 100000);
-            SimulationEngine engine = new SimulationEngine(config.timeSettings().endTime(), maxEvents, scheduler);
-            engine.setValidator(validator);
-            engine.setAnalyzer(analyzer);
+        // 调度插件若提供 (NodeDistanceMatrix) 构造器，则注入距离矩阵用于派工代价计算
+        Object dispatcherObj = (distances != null)
+                ? loadPlugin(config.strategies().taskDispatcherClass(), NodeDistanceMatrix.class, distances)
+                : loadPlugin(config.strategies().taskDispatcherClass());
+        TaskAllocator taskAllocator = (TaskAllocator) dispatcherObj;
+        TrafficController trafficController = (TrafficController) dispatcherObj;
 
-            engine.start();
+        TaskGenerator generator = (random != null)
+                ? loadPluginMulti(config.strategies().taskGeneratorClass(),
+                        new Class<?>[]{GridMap.class, List.class, RandomGenerator.class}, new Object[]{gridMap, entities, random})
+                : loadPluginMulti(config.strategies().taskGeneratorClass(),
+                        new Class<?>[]{GridMap.class, List.class}, new Object[]{gridMap, entities});
 
-            new LogWriter().writeLog(engine.getEventLog(), config.output().logDir());
+        SimulationValidator validator = loadPlugin(config.strategies().validatorClass());
+        // 分析插件可为后置 (MetricsAnalyzer) 或在线 (IncrementalMetricsAnalyzer)
+        Object analyzer = loadPlugin(config.strategies().analyzerClass());
+        if (analyzer instanceof IncrementalMetricsAnalyzer online) online.init(entities);
 
-        } catch (Exception e) {
-            logger.error("仿真运行失败", e);
-            e.printStackTrace();
+        // 构建调度器 (注入配置参数)
+        // 假设 config 中有 defaultWaitTime 和 taskGenInterval 字段，或者使用默认值
+        long defaultWaitTime = 1000;
+        long taskGenInterval = 10000;
+
+        SimpleScheduler scheduler = new SimpleScheduler(
+                taskAllocator, trafficController,
+                routePlanner, timeModule, physics, gridMap, generator,
+                defaultWaitTime, taskGenInterval
+        );
+        scheduler.setVerbose(!replication);
+
+        if (routing != null && routing.reservations()) {
+            scheduler.setTimedRoutePlanner(new ReservationRoutePlanner(gridMap, physics, routing.reservationHorizon()));
+        }
+        if (routing != null && routing.incrementalReplanning()) {
+            DStarLiteRoutePlanner incremental = new DStarLiteRoutePlanner(gridMap);
+            if (!replication) gridMap.addCellChangeListener(incremental);
+            scheduler.setIncrementalRoutePlanner(incremental);
+        }
+        // 分层规划的惰性路径从检查点恢复时，未细化的段由基础规划器重建细化器
+        RoutePlanner basePlanner = (routeCache != null) ? routeCache.getDelegate() : routePlanner;
+        if (basePlanner instanceof LazyPath.SegmentSource source) scheduler.setSegmentSource(source);
+        // 运行时封闭格子后，标记剩余路径受影响的设备
+        if (!replication) gridMap.addCellChangeListener(scheduler);
+
+        var engineSettings = config.engine();
+        if (engineSettings != null && engineSettings.entityStateStore()) {
+            scheduler.setEntityStateStore(new EntityStateStore(gridMap, entities.size()));
+        }
+        EventQueue eventQueue = (engineSettings != null) ? loadPlugin(engineSettings.eventQueueClass()) : null;
+        if (eventQueue != null) scheduler.setEventQueue(eventQueue);
+        if (engineSettings != null) scheduler.setMacroStepCells(engineSettings.macroStepCells());
+
+        // 注册数据并生成初始事件
+        entities.forEach(scheduler::registerEntity);
+        tasks.forEach(scheduler::addInstruction);
+        scheduler.init();
+
+        var maxEvents = Math.max(config.timeSettings().maxEvents(), 100000);
+        long endTime = config.timeSettings().endTime();
+        SimulationEngine engine;
+        if (!replication && engineSettings != null && engineSettings.realTimeFactor() > 0) {
+            engine = new PacedSimulationEngine(endTime, maxEvents, scheduler, engineSettings.realTimeFactor());
+        } else if (!replication && engineSettings != null && engineSettings.parallelRegions() > 1) {
+            engine = new PartitionedSimulationEngine(endTime, maxEvents, scheduler,
+                    new RegionPartition(gridMap, engineSettings.parallelRegions()), engineSettings.parallelThreads());
+        } else {
+            engine = new SimulationEngine(endTime, maxEvents, scheduler);
+        }
+        engine.setValidator(validator);
+        if (analyzer instanceof MetricsAnalyzer post) engine.setAnalyzer(post);
+        if (analyzer instanceof IncrementalMetricsAnalyzer online) engine.setIncrementalAnalyzer(online);
+        engine.setVerbose(!replication);
+        if (!replication && engineSettings != null && engineSettings.checkpointInterval() > 0) {
+            String dir = engineSettings.checkpointDir() != null ? engineSettings.checkpointDir() : "checkpoints";
+            engine.setCheckpointing(engineSettings.checkpointInterval(), Path.of(dir));
+        }
+        return new Simulation(engine, scheduler, routeCache, gridMap, distances, routePlanner, entities);
+    }
+
+    /**
+     * 从运行中的仿真分叉出独立的仿真，向前推演 horizon 后结束，用于中途的假设分析。
+     * 须在父仿真两次事件之间、在其线程上调用 (如 runUntil 返回后)；之后父子可各自在任意线程上继续运行。
+     * 父仿真的状态只序列化为一份不可变快照，多个分叉可共用 (见 {@link #fork(ConfigLoader.AppConfig, Simulation, byte[], long)})。
+     */
+    static Simulation fork(ConfigLoader.AppConfig config, Simulation parent, long horizon) throws Exception {
+        return fork(config, parent, parent.engine().snapshot(), horizon);
+    }
+
+    /**
+     * 用父仿真的快照装配分叉：地图、距离矩阵、寻路插件与路径缓存直接共享 (分叉中地图只读)，
+     * 实体为浅拷贝 (参数与父仿真共用)，运行时状态、指令、待处理事件、占用与插件状态由快照恢复为分叉独占的副本。
+     * 未做任何改动的分叉与父仿真继续运行同一段时间的事件序列相同。
+     */
+    static Simulation fork(ConfigLoader.AppConfig config, Simulation parent, byte[] snapshot, long horizon) throws Exception {
+        List<Entity> copies = new ArrayList<>(parent.entities().size());
+        for (Entity e : parent.entities()) copies.add(e.copy());
+        Simulation child = assemble(config, parent.gridMap(), parent.distances(), parent.routePlanner(),
+                copies, List.of(), null, true);
+        child.engine().restoreSnapshot(snapshot);
+        child.engine().setEndTime(child.engine().getCurrentTime() + horizon);
+        return child;
+    }
+
+    /**
+     * 按可用构造器创建寻路插件：(GridMap, NodeDistanceMatrix) > (GridMap, int 簇尺寸) > (GridMap)
+     */
+    static RoutePlanner createRoutePlanner(String className, ConfigLoader.RoutingSettings routing,
+                                            GridMap gridMap, NodeDistanceMatrix distances) throws Exception {
+        if (className == null || className.isEmpty()) return null;
+        Class<?> type = Class.forName(className);
+        if (distances != null) {
+            try {
+                return (RoutePlanner) type.getConstructor(GridMap.class, NodeDistanceMatrix.class).newInstance(gridMap, distances);
+            } catch (NoSuchMethodException ignored) {
+                // 插件不使用距离矩阵
+            }
+        }
+        if (routing != null && routing.clusterSize() > 0) {
+            try {
+                return (RoutePlanner) type.getConstructor(GridMap.class, int.class).newInstance(gridMap, routing.clusterSize());
+            } catch (NoSuchMethodException ignored) {
+                // 插件不分簇
+            }
         }
+        return loadPlugin(className, GridMap.class, gridMap);
     }
 
     private static <T> T loadPlugin(String className) throws Exception {
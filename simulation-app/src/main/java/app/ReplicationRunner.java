@@ -0,0 +1,131 @@
+package app;
+
+import decision.IncrementalMetricsAnalyzer;
+import decision.MetricsAnalyzer;
+import decision.RoutePlanner;
+import entity.Entity;
+import Instruction.Instruction;
+import io.ConfigLoader;
+import io.EntityLoader;
+import io.JsonMapLoader;
+import io.TaskLoader;
+import map.CellChangeListener;
+import map.GridMap;
+import map.NodeDistanceMatrix;
+import plugins.CheckpointableRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 多次重复实验：地图、距离矩阵、基础寻路插件与实体/任务数据只加载一次，各次运行复制实体与任务并独立装配调度器，
+ * 任务生成插件各用一个以主种子流按运行序号派生种子的 CheckpointableRandom (与线程调度无关)，在线程池上并发执行。
+ * 运行期间共享地图只读 (不在其上注册监听)；基础寻路插件的搜索缓冲为线程私有，可被并发调用。
+ * 结束后汇总各数值 KPI 的均值、标准差与 95% 置信区间。
+ * 用法: ReplicationRunner [配置文件] [重复次数] [线程数] [主种子]
+ */
+public class ReplicationRunner {
+    // 双侧 95% 的 t 分位数，自由度 1..30
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_975 = 1.959964;
+
+    public static void main(String[] args) throws Exception {
+        String configPath = args.length > 0 ? args[0] : "config/simulation-config.json";
+        int replications = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int threads = args.length > 2 && Integer.parseInt(args[2]) > 0
+                ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long masterSeed = args.length > 3 ? Long.parseLong(args[3]) : 12345L;
+
+        var config = new ConfigLoader().load(configPath);
+        long t0 = System.currentTimeMillis();
+        GridMap gridMap = new JsonMapLoader().loadGridMap(config.paths().mapFile(), config.mapSettings().cellSize());
+        List<Entity> entities = new EntityLoader().loadFromFile(config.paths().entityFile());
+        List<Instruction> tasks = new TaskLoader().loadFromFile(config.paths().taskFile());
+        NodeDistanceMatrix distances = Main.buildDistances(config, gridMap);
+        if (distances != null) gridMap.addCellChangeListener(distances);
+        RoutePlanner routePlanner = Main.createRoutePlanner(config.strategies().routePlannerClass(), config.routing(), gridMap, distances);
+        if (routePlanner instanceof CellChangeListener l) gridMap.addCellChangeListener(l);
+        System.out.println(">>> 共享数据加载完成，耗时 " + (System.currentTimeMillis() - t0) + " ms");
+
+        // 各次运行的种子按运行序号依次取自主种子流，保证同一主种子下各次运行的结果可复现；
+        // 每次运行的生成器状态可写入检查点 (分叉、恢复)
+        SplittableRandom root = new SplittableRandom(masterSeed);
+        List<CheckpointableRandom> streams = new ArrayList<>(replications);
+        for (int i = 0; i < replications; i++) streams.add(new CheckpointableRandom(root.nextLong()));
+
+        System.out.println(">>> 重复实验 " + replications + " 次, 线程:" + threads + ", 主种子:" + masterSeed);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Map<String, Object>> results = new ArrayList<>(replications);
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>(replications);
+            for (CheckpointableRandom stream : streams) {
+                futures.add(pool.submit(() -> {
+                    List<Entity> runEntities = new ArrayList<>(entities.size());
+                    for (Entity e : entities) runEntities.add(e.copy());
+                    List<Instruction> runTasks = new ArrayList<>(tasks.size());
+                    for (Instruction t : tasks) runTasks.add(t.copy());
+
+                    Main.Simulation sim = Main.assemble(config, gridMap, distances, routePlanner,
+                            runEntities, runTasks, stream, true);
+                    // 在线分析器无需保留事件日志，每次运行的内存与仿真时长无关
+                    IncrementalMetricsAnalyzer online = sim.engine().getIncrementalAnalyzer();
+                    if (online != null) sim.engine().setRetainEventLog(false);
+                    sim.engine().start();
+                    return online != null ? online.snapshot() : analyzer(config).analyze(sim.engine().getEventLog());
+                }));
+            }
+            for (Future<Map<String, Object>> f : futures) results.add(f.get());
+        } finally {
+            pool.shutdown();
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf(">>> 完成，总耗时 %.1f ms (平均每次 %.1f ms)%n", elapsedMs, elapsedMs / replications);
+        printTable(results);
+    }
+
+    private static MetricsAnalyzer analyzer(ConfigLoader.AppConfig config) throws Exception {
+        String className = config.strategies().analyzerClass();
+        if (className == null || className.isEmpty()) className = "plugins.DefaultMetricsAnalyzer";
+        return (MetricsAnalyzer) Class.forName(className).getDeclaredConstructor().newInstance();
+    }
+
+    // 按 KPI 名汇总数值型结果，非数值 KPI 忽略
+    private static void printTable(List<Map<String, Object>> results) {
+        Map<String, List<Double>> samples = new LinkedHashMap<>();
+        for (Map<String, Object> kpis : results) {
+            kpis.forEach((k, v) -> {
+                if (v instanceof Number n) samples.computeIfAbsent(k, x -> new ArrayList<>()).add(n.doubleValue());
+            });
+        }
+        System.out.println("--- [KPI 汇总 (95% 置信区间)] ---");
+        System.out.printf("%-26s %6s %12s %12s %12s %25s%n", "KPI", "n", "mean", "std", "half-width", "95% CI");
+        samples.forEach((k, xs) -> {
+            int n = xs.size();
+            double mean = 0;
+            for (double x : xs) mean += x;
+            mean /= n;
+            double ss = 0;
+            for (double x : xs) ss += (x - mean) * (x - mean);
+            double std = n > 1 ? Math.sqrt(ss / (n - 1)) : 0;
+            double half = n > 1 ? tQuantile(n - 1) * std / Math.sqrt(n) : Double.NaN;
+            System.out.printf("%-26s %6d %12.3f %12.3f %12.3f %25s%n", k, n, mean, std, half,
+                    n > 1 ? String.format("[%.3f, %.3f]", mean - half, mean + half) : "-");
+        });
+    }
+
+    // 自由度 > 30 时用 Cornish-Fisher 展开由正态分位数近似
+    private static double tQuantile(int df) {
+        if (df <= T_975.length) return T_975[df - 1];
+        double z = Z_975, z3 = z * z * z, z5 = z3 * z * z;
+        return z + (z3 + z) / (4.0 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * df * df);
+    }
+}
@@ -0,0 +1,131 @@
+package app;
+
+import decision.RoutePlanner;
+import decision.RouteQuery;
+import io.ConfigLoader;
+import io.JsonMapLoader;
+import map.GridMap;
+import map.Location;
+import map.RoadGraph;
+import plugins.AStarRoutePlanner;
+import plugins.GraphRoutePlanner;
+import plugins.GridRoutePlanner;
+import plugins.HierarchicalRoutePlanner;
+import plugins.JumpPointRoutePlanner;
+import plugins.SearchStatistics;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 寻路插件基准：在配置地图与合成的大型通道网格上比较扩展节点数、单次查询与批量 (并行) 查询耗时，并校验各算法路径长度一致。
+ * 用法: RouteBenchmark [配置文件] [查询数]
+ */
+public class RouteBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String configPath = args.length > 0 ? args[0] : "config/simulation-config.json";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        var config = new ConfigLoader().load(configPath);
+        GridMap portMap = new JsonMapLoader().loadGridMap(config.paths().mapFile(), config.mapSettings().cellSize());
+        run("配置地图 " + config.paths().mapFile(), portMap, nodeLocations(portMap), queries);
+
+        GridMap corridors = buildCorridorLattice(2000, 1500, 40, 50);
+        run("合成通道网格 2000x1500", corridors, nodeLocations(corridors), queries);
+    }
+
+    private static void run(String title, GridMap map, List<Location> nodes, int queries) {
+        System.out.println("=== " + title + " (节点 " + nodes.size() + ", 查询 " + queries + ") ===");
+        if (nodes.size() < 2) return;
+
+        Random random = new Random(42);
+        Location[][] pairs = new Location[queries][];
+        List<RouteQuery> batch = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            pairs[i] = new Location[]{nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size()))};
+            batch.add(new RouteQuery(pairs[i][0], pairs[i][1]));
+        }
+
+        Map<String, RoutePlanner> planners = new LinkedHashMap<>();
+        planners.put("GridRoutePlanner(BFS)", new GridRoutePlanner(map));
+        planners.put("AStarRoutePlanner", new AStarRoutePlanner(map));
+        planners.put("JumpPointRoutePlanner", new JumpPointRoutePlanner(map));
+        // HPA* 为近似最优，长度差异计入 mismatches；路径为惰性展开，此处耗时不含逐格细化
+        planners.put("HierarchicalRoutePlanner", new HierarchicalRoutePlanner(map));
+        // 路网图只沿路段行驶，栅格规划器可经其他可通行格抄近路，配置地图上的长度差异属预期
+        planners.put("GraphRoutePlanner", new GraphRoutePlanner(map));
+
+        int[] reference = null;
+        System.out.printf("%-24s %14s %14s %14s %12s%n", "planner", "avg expanded", "avg us/query", "batch us/query", "mismatches");
+        for (Map.Entry<String, RoutePlanner> e : planners.entrySet()) {
+            RoutePlanner planner = e.getValue();
+            for (int r = 0; r < WARMUP_ROUNDS; r++) {
+                for (Location[] q : pairs) planner.searchRoute(q[0], q[1]);
+            }
+
+            int[] lengths = new int[queries];
+            long expanded = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                lengths[i] = planner.searchRoute(pairs[i][0], pairs[i][1]).size();
+                if (planner instanceof SearchStatistics s) expanded += s.getLastExpandedNodes();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            planner.searchRoutes(batch);
+            long batchStart = System.nanoTime();
+            planner.searchRoutes(batch);
+            long batchElapsed = System.nanoTime() - batchStart;
+
+            int mismatches = 0;
+            if (reference == null) reference = lengths;
+            else for (int i = 0; i < queries; i++) if (reference[i] != lengths[i]) mismatches++;
+
+            System.out.printf("%-24s %14.1f %14.1f %14.1f %12d%n", e.getKey(),
+                    expanded / (double) queries, elapsed / 1000.0 / queries, batchElapsed / 1000.0 / queries, mismatches);
+        }
+    }
+
+    // 横竖通道组成的路网，路口注册为节点，相邻路口之间为双向路段
+    private static GridMap buildCorridorLattice(int width, int height, int xSpacing, int ySpacing) {
+        GridMap map = new GridMap(width, height, 1.0);
+        for (int y = 0; y < height; y += ySpacing) {
+            for (int x = 0; x < width; x++) map.setWalkable(x, y, true);
+        }
+        for (int x = 0; x < width; x += xSpacing) {
+            for (int y = 0; y < height; y++) map.setWalkable(x, y, true);
+        }
+        for (int y = 0; y < height; y += ySpacing) {
+            for (int x = 0; x < width; x += xSpacing) {
+                map.registerNode("N_" + x + "_" + y, (x == 0) ? "QUAY" : "BAY", new Location(x, y));
+            }
+        }
+        RoadGraph.Builder graph = RoadGraph.builder(map);
+        for (int y = 0; y < height; y += ySpacing) {
+            for (int x = 0; x < width; x += xSpacing) {
+                if (x + xSpacing < width) graph.addSegment("N_" + x + "_" + y, "N_" + (x + xSpacing) + "_" + y,
+                        straightCells(map, x, y, 1, 0, xSpacing), false);
+                if (y + ySpacing < height) graph.addSegment("N_" + x + "_" + y, "N_" + x + "_" + (y + ySpacing),
+                        straightCells(map, x, y, 0, 1, ySpacing), false);
+            }
+        }
+        map.setRoadGraph(graph.build());
+        return map;
+    }
+
+    private static int[] straightCells(GridMap map, int x, int y, int dx, int dy, int length) {
+        int[] cells = new int[length + 1];
+        for (int i = 0; i <= length; i++) cells[i] = map.cellIndex(x + dx * i, y + dy * i);
+        return cells;
+    }
+
+    private static List<Location> nodeLocations(GridMap map) {
+        List<Location> result = new ArrayList<>();
+        for (String id : map.getNodeIds()) result.add(map.getNodeLocation(id));
+        return result;
+    }
+}
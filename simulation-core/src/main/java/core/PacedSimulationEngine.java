@@ -0,0 +1,165 @@
+package core;
+
+import algo.SimpleScheduler;
+import event.SimEvent;
+import Instruction.Instruction;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 按墙钟步进的引擎 (数字孪生)：仿真时间按固定倍速映射到墙钟，每个事件在其到期的墙钟时刻才处理。
+ * 等待时先 park 到到期前 SPIN_NANOS，再自旋到点，兼顾 CPU 占用与精度。
+ * 处理跟不上时不重新对齐时钟，而是尽快追赶，并统计迟到量 (滞后) 及其标准差 (抖动)。
+ * 外部线程可随时经线程安全的收件箱注入命令 (新任务、格子封闭等)，引擎在两次事件之间于自身线程执行，
+ * 执行时刻取墙钟对应的仿真时间 (不早于当前时钟、不晚于下一事件)，循环不停止。
+ */
+public class PacedSimulationEngine extends SimulationEngine {
+    private static final long SPIN_NANOS = 200_000;
+    // 迟到超过该值计为落后，并在进入落后状态时提示一次
+    private static final long LATE_NANOS = 1_000_000;
+    private static final long LAG_WARN_NANOS = 100_000_000;
+
+    private final double nanosPerSimMs;
+    private final Queue<ObjLongConsumer<SimpleScheduler>> inbox = new ConcurrentLinkedQueue<>();
+    private volatile Thread engineThread;
+    private volatile boolean stopped;
+
+    private long simOrigin;
+    private long wallOrigin;
+    private boolean behind;
+
+    // 迟到统计 (纳秒)
+    private long pacedEvents;
+    private long lateEvents;
+    private double lagSum;
+    private double lagSquareSum;
+    private long maxLag;
+    private long injected;
+
+    /**
+     * @param speedUp 倍速：每墙钟毫秒推进的仿真毫秒数，1 为实时
+     */
+    public PacedSimulationEngine(long endTime, int maxEvents, SimpleScheduler scheduler, double speedUp) {
+        super(endTime, maxEvents, scheduler);
+        if (speedUp <= 0) throw new IllegalArgumentException("倍速必须为正数: " + speedUp);
+        this.nanosPerSimMs = 1_000_000.0 / speedUp;
+    }
+
+    /** 线程安全：注入命令，于引擎线程在两次事件之间执行，参数为调度器与执行时的仿真时刻 */
+    public void inject(ObjLongConsumer<SimpleScheduler> command) {
+        inbox.add(command);
+        Thread t = engineThread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    /** 线程安全：注入新任务 */
+    public void injectTask(Instruction task) {
+        inject((s, now) -> s.injectInstruction(now, task));
+    }
+
+    /** 线程安全：注入格子开放/封闭 */
+    public void injectCellChange(int x, int y, boolean walkable) {
+        inject((s, now) -> s.setCellWalkable(x, y, walkable));
+    }
+
+    /** 线程安全：在当前事件处理完后结束运行 */
+    public void stop() {
+        stopped = true;
+        Thread t = engineThread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    @Override
+    public void start() {
+        engineThread = Thread.currentThread();
+        if (verbose) System.out.printf(">>> 仿真引擎启动 (实时步进, 倍速 %.1f)...%n", 1_000_000.0 / nanosPerSimMs);
+        simOrigin = currentTime;
+        wallOrigin = System.nanoTime();
+        try {
+            run();
+        } finally {
+            engineThread = null;
+        }
+        if (verbose) System.out.println(">>> " + statistics());
+        finish();
+    }
+
+    private void run() {
+        while (!stopped && currentTime < endTime) {
+            SimEvent next = scheduler.peekNextEvent();
+            long dueSim = (next != null) ? Math.max(next.getTimestamp(), currentTime) : endTime;
+            drainInbox(dueSim);
+            if (!inbox.isEmpty()) continue;
+            next = scheduler.peekNextEvent();
+            if (next != null && next.getTimestamp() < dueSim) continue;
+
+            long dueWall = wallTimeOf(dueSim);
+            if (!waitUntil(dueWall)) continue;
+            if (next == null) {
+                // 无待处理事件且墙钟已到结束时间
+                currentTime = endTime;
+                return;
+            }
+            recordLag(System.nanoTime() - dueWall);
+            checkpointIfDue();
+            if (!process(scheduler.getNextEvent())) return;
+        }
+    }
+
+    // 执行收件箱中的命令，执行时刻取墙钟对应的仿真时间，限制在 [当前时钟, 下一事件] 内以保持时间单调
+    private void drainInbox(long nextDue) {
+        ObjLongConsumer<SimpleScheduler> command;
+        while ((command = inbox.poll()) != null) {
+            long wallSim = simOrigin + (long) ((System.nanoTime() - wallOrigin) / nanosPerSimMs);
+            long at = Math.max(currentTime, Math.min(wallSim, nextDue));
+            currentTime = at;
+            command.accept(scheduler, at);
+            injected++;
+        }
+    }
+
+    // 等到墙钟 dueWall；期间有命令注入或被停止时提前返回 false
+    private boolean waitUntil(long dueWall) {
+        while (true) {
+            if (stopped || !inbox.isEmpty()) return false;
+            long remaining = dueWall - System.nanoTime();
+            if (remaining <= 0) return true;
+            if (remaining > SPIN_NANOS) LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+            else Thread.onSpinWait();
+        }
+    }
+
+    private long wallTimeOf(long simTime) {
+        return wallOrigin + (long) ((simTime - simOrigin) * nanosPerSimMs);
+    }
+
+    private void recordLag(long lag) {
+        pacedEvents++;
+        lagSum += lag;
+        lagSquareSum += (double) lag * lag;
+        maxLag = Math.max(maxLag, lag);
+        if (lag > LATE_NANOS) lateEvents++;
+        if (lag > LAG_WARN_NANOS && !behind && verbose) {
+            System.out.printf(">>> [%d] 落后墙钟 %.1f ms%n", currentTime, lag / 1e6);
+        }
+        behind = lag > LAG_WARN_NANOS;
+    }
+
+    public long getLateEvents() { return lateEvents; }
+    public double getMeanLagMillis() { return pacedEvents == 0 ? 0 : lagSum / pacedEvents / 1e6; }
+    public double getMaxLagMillis() { return maxLag / 1e6; }
+
+    /** 迟到量的标准差 */
+    public double getJitterMillis() {
+        if (pacedEvents == 0) return 0;
+        double mean = lagSum / pacedEvents;
+        return Math.sqrt(Math.max(0, lagSquareSum / pacedEvents - mean * mean)) / 1e6;
+    }
+
+    public String statistics() {
+        return String.format("实时步进[事件:%d, 落后:%d, 平均滞后:%.3f ms, 最大滞后:%.3f ms, 抖动:%.3f ms, 注入命令:%d]",
+                pacedEvents, lateEvents, getMeanLagMillis(), getMaxLagMillis(), getJitterMillis(), injected);
+    }
+}
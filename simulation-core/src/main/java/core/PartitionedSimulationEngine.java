@@ -0,0 +1,183 @@
+package core;
+
+import algo.SimpleScheduler;
+import event.SimEvent;
+import map.Location;
+import map.RegionPartition;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按地图区域分区的保守并行引擎 (时间窗同步)。
+ * 每个时间窗为 [T, T + 前瞻量)，前瞻量取 SimpleScheduler.getLookahead (以最大速度驶过一格的时间与默认等待的较小者)，
+ * 窗内事件产生的新事件不早于窗口结束，因此窗内事件集合在处理前即已确定。
+ * 窗内按全局顺序 (时间戳, 入队序号) 扫描：目标格远离区域边界的普通移动步归入所在区域的逻辑进程，
+ * 各区域在线程池中并行、区域内按原顺序处理；到达、作业完成、任务生成等全局事件以及边界附近的事件作为屏障，
+ * 先并行处理此前积累的批次，再顺序处理该事件。并发事件产生的新事件按批次顺序统一入队，
+ * 入队序号与顺序引擎一致，因此相同配置下结果与 SimulationEngine 完全相同。
+ * 设备跨区时其后续事件自动按新位置归属到新区域。
+ */
+public class PartitionedSimulationEngine extends SimulationEngine {
+    // 并发事件会读写目标格及其前后一格，这些格子再向外一格也不能被其他区域触及
+    private static final int INTERIOR_MARGIN = 2;
+
+    private final RegionPartition partition;
+    private final int threads;
+
+    private long windows;
+    private long concurrentEvents;
+    private long sequentialEvents;
+
+    public PartitionedSimulationEngine(long endTime, int maxEvents, SimpleScheduler scheduler,
+                                       RegionPartition partition, int threads) {
+        super(endTime, maxEvents, scheduler);
+        this.partition = partition;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void start() {
+        if (verbose) System.out.println(">>> 仿真引擎启动 (分区并行, " + partition + ", 线程:" + threads + ")...");
+        long lookahead = Math.max(1, scheduler.getLookahead());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            run(pool, lookahead);
+        } finally {
+            pool.shutdown();
+        }
+        if (verbose) System.out.printf(">>> 分区并行[前瞻:%dms, 时间窗:%d, 并发事件:%d, 顺序事件:%d]%n",
+                lookahead, windows, concurrentEvents, sequentialEvents);
+        finish();
+    }
+
+    private void run(ForkJoinPool pool, long lookahead) {
+        Batch batch = new Batch(partition.regionCount());
+        while (currentTime < endTime) {
+            // 检查点只在时间窗起点 (无未处理批次) 写出
+            checkpointIfDue();
+            SimEvent first = scheduler.peekNextEvent();
+            if (first == null) return;
+            // 越过结束时间的事件与顺序引擎一样只处理一个
+            if (first.getTimestamp() >= endTime) {
+                process(scheduler.getNextEvent());
+                sequentialEvents++;
+                return;
+            }
+            windows++;
+            long windowEnd = Math.min(endTime, first.getTimestamp() + lookahead);
+            while (true) {
+                SimEvent event = scheduler.peekNextEvent();
+                if (event == null || event.getTimestamp() >= windowEnd) break;
+                if (isRegionLocal(event) && batch.accepts(event)) {
+                    batch.add(scheduler.getNextEvent(), partition.regionOf(event.getPackedTargetPosition()));
+                    continue;
+                }
+                // 屏障：先处理已积累的并发批次，再顺序处理本事件
+                if (!batch.isEmpty()) {
+                    flush(pool, batch, windowEnd);
+                    continue;
+                }
+                sequentialEvents++;
+                if (!process(scheduler.getNextEvent())) return;
+            }
+            flush(pool, batch, windowEnd);
+        }
+    }
+
+    private boolean isRegionLocal(SimEvent event) {
+        long p = event.getPackedTargetPosition();
+        return scheduler.canDispatchConcurrently(event)
+                && partition.isInterior(Location.unpackX(p), Location.unpackY(p), INTERIOR_MARGIN);
+    }
+
+    private void flush(ForkJoinPool pool, Batch batch, long windowEnd) {
+        if (batch.isEmpty()) return;
+        int n = batch.events.size();
+        List<List<SimEvent>> outputs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) outputs.add(new ArrayList<>(2));
+
+        scheduler.setConcurrentDispatch(true);
+        try {
+            List<RegionTask> tasks = new ArrayList<>();
+            for (List<Integer> members : batch.byRegion) {
+                if (!members.isEmpty()) tasks.add(new RegionTask(batch.events, members, outputs));
+            }
+            if (tasks.size() == 1) tasks.get(0).compute();
+            else pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() { invokeAll(tasks); }
+            });
+        } finally {
+            scheduler.setConcurrentDispatch(false);
+        }
+
+        // 按全局顺序入队新事件、推进时钟、推送订阅者并归还已处理事件
+        for (int i = 0; i < n; i++) {
+            SimEvent done = batch.events.get(i);
+            currentTime = Math.max(currentTime, done.getTimestamp());
+            for (SimEvent created : outputs.get(i)) {
+                if (created.getTimestamp() < windowEnd) {
+                    throw new IllegalStateException("前瞻量不足: 事件 " + created + " 早于时间窗结束 " + windowEnd);
+                }
+                scheduler.enqueue(created);
+            }
+            publish(done);
+            scheduler.recycleEvent(done);
+        }
+        concurrentEvents += n;
+        batch.clear();
+    }
+
+    public long getConcurrentEvents() { return concurrentEvents; }
+    public long getSequentialEvents() { return sequentialEvents; }
+
+    // 一个区域在本批次中的事件，按全局顺序处理；只在 ForkJoin 池内使用，不会被序列化
+    @SuppressWarnings("serial")
+    private final class RegionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<SimEvent> events;
+        private final List<Integer> members;
+        private final List<List<SimEvent>> outputs;
+
+        RegionTask(List<SimEvent> events, List<Integer> members, List<List<SimEvent>> outputs) {
+            this.events = events;
+            this.members = members;
+            this.outputs = outputs;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i : members) scheduler.dispatchConcurrently(events.get(i), outputs.get(i));
+        }
+    }
+
+    // 待并发处理的事件；同一设备在一个批次内至多一个事件，保证按设备状态所做的归类判断有效
+    private static final class Batch {
+        final List<SimEvent> events = new ArrayList<>();
+        final List<List<Integer>> byRegion = new ArrayList<>();
+        final Set<String> entities = new HashSet<>();
+
+        Batch(int regions) {
+            for (int i = 0; i < regions; i++) byRegion.add(new ArrayList<>());
+        }
+
+        boolean isEmpty() { return events.isEmpty(); }
+        boolean accepts(SimEvent event) { return !entities.contains(event.getEntityId()); }
+
+        void add(SimEvent event, int region) {
+            byRegion.get(region).add(events.size());
+            events.add(event);
+            entities.add(event.getEntityId());
+        }
+
+        void clear() {
+            events.clear();
+            entities.clear();
+            for (List<Integer> members : byRegion) members.clear();
+        }
+    }
+}
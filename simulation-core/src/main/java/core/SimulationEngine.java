@@ -1,51 +1,268 @@
 package core;
 
 import algo.SimpleScheduler;
+import checkpoint.CheckpointFile;
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
+import decision.IncrementalMetricsAnalyzer;
+import decision.IncrementalValidator;
 import decision.MetricsAnalyzer;
 import decision.SimulationValidator;
+import event.EventLogSink;
+import event.EventSink;
 import event.EventType;
 import event.SimEvent;
+import Instruction.Instruction;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Function;
 
-public class SimulationEngine {
-    private final long endTime;
-    private final int maxEvents;
-    private final SimpleScheduler scheduler;
-    private final List<SimEvent> eventLog = new ArrayList<>();
-    private long currentTime = 0;
+public class SimulationEngine implements Checkpointable {
+    protected long endTime;
+    protected final int maxEvents;
+    protected final SimpleScheduler scheduler;
+    // 事件订阅者，默认只有内存事件日志；日志可关闭，改由流式订阅者消费以保持内存恒定
+    private final List<EventSink> sinks = new ArrayList<>();
+    private EventLogSink eventLog = new EventLogSink();
+    // 已处理的非 MOVE_STEP 事件数，达到 maxEvents 后停止
+    private long loggedEvents;
+    protected long currentTime = 0;
+    // 事件耗尽或日志达到上限后不再推进
+    private boolean halted;
     private SimulationValidator validator;
     private MetricsAnalyzer analyzer;
+    private IncrementalMetricsAnalyzer incrementalAnalyzer;
+    protected boolean verbose = true;
+    // 周期检查点：仿真时间每跨过 checkpointInterval 的整数倍，在处理该时刻及之后的事件前写出一次
+    private long checkpointInterval;
+    private Path checkpointDir;
+    private long nextCheckpointTime = Long.MAX_VALUE;
 
     public SimulationEngine(long endTime, int maxEvents, SimpleScheduler scheduler) {
         this.endTime = endTime;
         this.maxEvents = maxEvents;
         this.scheduler = scheduler;
+        sinks.add(eventLog);
     }
 
-    public void setValidator(SimulationValidator v) { this.validator = v; }
+    /** 校验器同时实现 IncrementalValidator 时注册为订阅者在线校验，不依赖事件日志 */
+    public void setValidator(SimulationValidator v) {
+        if (validator instanceof IncrementalValidator old) sinks.remove(old);
+        this.validator = v;
+        if (v instanceof IncrementalValidator iv) sinks.add(iv);
+    }
     public void setAnalyzer(MetricsAnalyzer a) { this.analyzer = a; }
 
+    /** 在线 KPI 分析器，注册为订阅者；报告取其快照，不依赖事件日志 */
+    public void setIncrementalAnalyzer(IncrementalMetricsAnalyzer a) {
+        if (incrementalAnalyzer != null) sinks.remove(incrementalAnalyzer);
+        this.incrementalAnalyzer = a;
+        if (a != null) sinks.add(a);
+    }
+
+    public IncrementalMetricsAnalyzer getIncrementalAnalyzer() { return incrementalAnalyzer; }
+    /** 关闭后不打印启动信息与后置报告，由调用方自行分析日志 */
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+
+    public void addEventSink(EventSink sink) { sinks.add(sink); }
+    public void removeEventSink(EventSink sink) { sinks.remove(sink); }
+
+    /** 是否在内存中保留事件日志 (getEventLog)；关闭后后置校验与 KPI 分析需改用订阅者 (IncrementalValidator / IncrementalMetricsAnalyzer) */
+    public void setRetainEventLog(boolean retain) {
+        if (!retain && eventLog != null) {
+            sinks.remove(eventLog);
+            eventLog = null;
+        } else if (retain && eventLog == null) {
+            eventLog = new EventLogSink();
+            sinks.add(0, eventLog);
+        }
+    }
+
+    /** @param interval 检查点间隔 (仿真时间)，<= 0 关闭 */
+    public void setCheckpointing(long interval, Path dir) {
+        this.checkpointInterval = interval;
+        this.checkpointDir = dir;
+        this.nextCheckpointTime = interval > 0 ? (currentTime / interval + 1) * interval : Long.MAX_VALUE;
+    }
+
     public void start() {
-        System.out.println(">>> 仿真引擎启动...");
-        while (currentTime < endTime) {
+        if (verbose) System.out.println(">>> 仿真引擎启动...");
+        runUntil(endTime);
+        finish();
+    }
+
+    /**
+     * 顺序推进到时钟不早于 until (与 start 一样，越过边界的那个事件也会处理) 后返回，不输出报告。
+     * 可多次调用分段推进，例如暂停在某一时刻分叉，之后再继续；分段推进与一次运行到底的结果相同。
+     * @return 是否还可继续推进
+     */
+    public boolean runUntil(long until) {
+        while (!halted && currentTime < Math.min(until, endTime)) {
+            checkpointIfDue();
             SimEvent event = scheduler.getNextEvent();
-            if (event == null) break;
+            if (event == null || !process(event)) halted = true;
+        }
+        return !halted && currentTime < endTime;
+    }
+
+    public long getCurrentTime() { return currentTime; }
+    public long getEndTime() { return endTime; }
+
+    /** 调整结束时间，如分叉后只向前推演一段时间 */
+    public void setEndTime(long endTime) { this.endTime = endTime; }
+
+    /**
+     * 顺序处理单个事件
+     * @return 是否继续 (事件数未达上限)
+     */
+    protected boolean process(SimEvent event) {
+        currentTime = Math.max(currentTime, event.getTimestamp());
+        if (event.getType() != EventType.MOVE_STEP) loggedEvents++;
+        // 先推送订阅者再分发，分发后事件归还对象池
+        publish(event);
+        dispatch(event);
+        scheduler.recycleEvent(event);
+        return loggedEvents < maxEvents;
+    }
+
+    /** 按处理顺序推送给订阅者；不经 process 处理的事件 (如并行批次) 由子类在入队新事件时按全局顺序推送 */
+    protected void publish(SimEvent event) {
+        for (int i = 0, n = sinks.size(); i < n; i++) sinks.get(i).onEvent(event);
+    }
+
+    /** 运行结束：通知订阅者并输出后置报告 */
+    protected void finish() {
+        for (EventSink sink : sinks) sink.onFinish(currentTime);
+        report();
+    }
 
-            currentTime = Math.max(currentTime, event.getTimestamp());
-            if (event.getType() != EventType.MOVE_STEP) eventLog.add(event);
+    /** 下一个事件已越过检查点时刻时写出检查点，须在两次事件处理之间调用 */
+    protected void checkpointIfDue() {
+        if (checkpointInterval <= 0) return;
+        SimEvent next = scheduler.peekNextEvent();
+        if (next == null || next.getTimestamp() < nextCheckpointTime) return;
+        long at = nextCheckpointTime;
+        writeCheckpoint(checkpointDir.resolve("checkpoint_" + at + ".ckpt"), at);
+        nextCheckpointTime = (next.getTimestamp() / checkpointInterval + 1) * checkpointInterval;
+    }
+
+    /** 写出引擎、调度器、物理引擎及插件的完整状态 */
+    public void writeCheckpoint(Path file, long simTime) {
+        try {
+            CheckpointFile.write(file, simTime, checkpointables());
+            if (verbose) System.out.println(">>> [" + simTime + "] 检查点已写出: " + file + " (" + Files.size(file) + " 字节)");
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入检查点失败: " + file, e);
+        }
+    }
+
+    /**
+     * 在按同一配置装配并 init 后的引擎上恢复检查点，之后调用 start 即从检查点时刻继续
+     * @return 检查点对应的仿真时刻
+     */
+    public long restoreCheckpoint(Path file) throws IOException {
+        long simTime = CheckpointFile.read(file, checkpointables(), scheduler::getInstruction);
+        if (checkpointInterval > 0) nextCheckpointTime = (simTime / checkpointInterval + 1) * checkpointInterval;
+        return simTime;
+    }
+
+    /**
+     * 当前状态的内存快照 (调度器、物理引擎及插件，不含事件日志)，须在两次事件之间调用。
+     * 快照不可变，可恢复到任意多个按同一配置装配的引擎上
+     */
+    public byte[] snapshot() throws IOException {
+        return CheckpointFile.snapshot(currentTime, scheduler.getCheckpointables());
+    }
+
+    /** 恢复 snapshot 产生的快照：时钟取快照时刻，事件日志从空开始，只记录此后的事件 */
+    public void restoreSnapshot(byte[] snapshot) throws IOException {
+        currentTime = CheckpointFile.restore(snapshot, scheduler.getCheckpointables(), scheduler::getInstruction);
+        if (eventLog != null) eventLog.getEvents().clear();
+        loggedEvents = 0;
+        halted = false;
+        if (checkpointInterval > 0) nextCheckpointTime = (currentTime / checkpointInterval + 1) * checkpointInterval;
+    }
+
+    private List<Checkpointable> checkpointables() {
+        List<Checkpointable> list = new ArrayList<>();
+        list.add(this);
+        list.addAll(scheduler.getCheckpointables());
+        if (incrementalAnalyzer instanceof Checkpointable c) list.add(c);
+        return list;
+    }
+
+    @Override
+    public String checkpointKey() { return "engine"; }
+
+    // 版本 2 增加已处理事件数 (事件日志可不保留)
+    @Override
+    public int checkpointVersion() { return 2; }
 
-            dispatch(event);
-            if (eventLog.size() >= maxEvents) break;
+    // 引擎自身的状态为时钟、事件计数与内存中的事件日志 (恢复后的 KPI 仍覆盖完整运行)
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeLong(currentTime);
+        out.writeLong(loggedEvents);
+        List<SimEvent> log = getEventLog();
+        out.writeVarInt(log.size());
+        for (SimEvent e : log) {
+            out.writeLong(e.getTimestamp());
+            out.writeString(e.getType().name());
+            out.writeString(e.getEntityId());
+            out.writeString(e.getInstructionId());
+            out.writeLong(e.getPackedTargetPosition());
         }
+    }
 
+    @Override
+    public void restoreState(CheckpointInput in, int version, Function<String, Instruction> instructions) throws IOException {
+        currentTime = in.readLong();
+        halted = false;
+        long logged = (version >= 2) ? in.readLong() : -1;
+        if (eventLog != null) eventLog.getEvents().clear();
+        int size = in.readVarInt();
+        for (int i = size; i > 0; i--) {
+            long ts = in.readLong();
+            EventType type = EventType.valueOf(in.readString());
+            String eid = in.readString();
+            String iid = in.readString();
+            SimEvent e = new SimEvent(ts, type, eid, iid, in.readLong());
+            if (eventLog != null) eventLog.getEvents().add(e);
+            if (validator instanceof IncrementalValidator iv) iv.onEvent(e);
+        }
+        loggedEvents = (logged >= 0) ? logged : size;
+    }
+
+    protected void report() {
+        if (!verbose) return;
         System.out.println(">>> 仿真计算结束，执行后置分析...");
-        if (validator != null) {
+        if (incrementalAnalyzer != null) {
+            System.out.println("--- [在线KPI报告] ---");
+            incrementalAnalyzer.snapshot().forEach((k, v) -> System.out.println("  " + k + ": " + v));
+        }
+        if (validator instanceof IncrementalValidator iv) {
+            System.out.println("--- [正确性校验报告] ---");
+            iv.report().forEach(msg -> System.out.println("  " + msg));
+        }
+        if (eventLog == null) {
+            if (validator != null && !(validator instanceof IncrementalValidator)) {
+                System.out.println("  [跳过] 未保留事件日志，校验器不支持在线校验: " + validator.getClass().getSimpleName());
+            }
+            if (analyzer != null) System.out.println("  [跳过] 未保留事件日志，未执行后置 KPI 分析");
+            return;
+        }
+        List<SimEvent> log = eventLog.getEvents();
+        if (validator != null && !(validator instanceof IncrementalValidator)) {
             System.out.println("--- [正确性校验报告] ---");
-            validator.validate(eventLog).forEach(msg -> System.out.println("  " + msg));
+            validator.validate(log).forEach(msg -> System.out.println("  " + msg));
         }
         if (analyzer != null) {
             System.out.println("--- [KPI分析报告] ---");
-            analyzer.analyze(eventLog).forEach((k, v) -> System.out.println("  " + k + ": " + v));
+            analyzer.analyze(log).forEach((k, v) -> System.out.println("  " + k + ": " + v));
         }
     }
 
@@ -55,7 +272,7 @@ public class SimulationEngine {
         String iid = event.getInstructionId();
         switch (event.getType()) {
             case TASK_GENERATION -> scheduler.handleTaskGeneration(now);
-            case MOVE_STEP -> scheduler.handleStepArrival(now, eid, event.getTargetPosition());
+            case MOVE_STEP -> scheduler.handleStepArrival(now, eid, event.getPackedTargetPosition());
             case QC_EXECUTION_COMPLETE, YC_EXECUTION_COMPLETE -> scheduler.handleCraneExecutionComplete(now, eid, iid);
             case QC_ARRIVAL, YC_ARRIVAL -> scheduler.handleCraneArrival(now, eid, iid);
             case IT_EXECUTION_COMPLETE -> scheduler.handleITExecutionComplete(now, eid, iid);
@@ -64,5 +281,6 @@ public class SimulationEngine {
         }
     }
 
-    public List<SimEvent> getEventLog() { return eventLog; }
+    /** 内存中的事件日志 (不含 MOVE_STEP)；未保留时为空列表 */
+    public List<SimEvent> getEventLog() { return eventLog != null ? eventLog.getEvents() : List.of(); }
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package io;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import event.EventSink;
+import event.EventType;
+import event.SimEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 异步日志写出：仿真线程只把事件字段拷入有界环形缓冲 (单生产者单消费者，无锁)，由后台线程序列化、gzip 压缩并写盘，
+ * 仿真线程不做任何磁盘 I/O。按压缩后大小或仿真时间滚动分片，
+ * 每个分片独立完整 (JSON 分片为 LogWriter 格式的数组，二进制分片为 BinaryLogWriter 格式)，解压即可用现有工具读取。
+ * 缓冲满时按策略处理：BLOCK 等待后台线程腾出空间 (背压)；DROP_MOVE_STEPS 丢弃 MOVE_STEP，其余事件仍等待，不丢业务事件。
+ * 等待时先短暂自旋，之后挂起，由后台线程归还槽位时唤醒。通过 start 创建，后台线程在对象构造完成后才启动。
+ */
+public class AsyncLogWriter implements EventSink, Closeable {
+    public enum OverflowPolicy { BLOCK, DROP_MOVE_STEPS }
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    private static final long IDLE_PARK_NANOS = 200_000;
+    // 背压等待：先自旋若干次，之后挂起 (带超时，防止错过唤醒)
+    private static final int SPIN_TRIES = 100;
+    private static final long STALL_PARK_NANOS = 100_000;
+    // 二进制分片按块写出，按大小滚动的粒度为一块
+    private static final int BINARY_BLOCK_EVENTS = 1024;
+
+    private final String baseName;
+    private final boolean binary;
+    private final boolean includeMoveSteps;
+    private final OverflowPolicy policy;
+    private final long rollBytes;
+    private final long rollInterval;
+    private final int compressionLevel;
+
+    // 环形缓冲：按列存放事件字段，槽位预分配，仿真线程不创建对象
+    private final int mask;
+    private final long[] timestamps;
+    private final long[] positions;
+    private final String[] entityIds;
+    private final String[] instructionIds;
+    private final EventType[] types;
+    // head 由后台线程推进 (已消费)，tail 由仿真线程推进 (已发布)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private Thread worker;
+    // 背压中挂起的仿真线程，后台线程归还槽位后唤醒
+    private volatile Thread waitingProducer;
+    private volatile boolean closing;
+    private volatile Throwable failure;
+    private boolean closed;
+
+    // 仿真线程统计
+    private long dropped;
+    private long stalls;
+
+    // 后台线程状态
+    private EventSink chunk;
+    private CountingOutputStream chunkBytes;
+    private long chunkStartTime;
+    private int chunkIndex;
+    private long written;
+    private final SimEvent scratch = new SimEvent(0, EventType.TASK_GENERATION, null);
+
+    /**
+     * 创建并启动后台写出线程
+     * @param baseName 分片文件名前缀 (含目录)，分片为 前缀_part0001.json.gz / .plog.gz
+     * @param binary 分片格式，true 为二进制列式，false 为 JSON
+     * @param capacity 环形缓冲槽数，取不小于它的 2 的幂；<= 0 取默认值
+     * @param rollBytes 分片压缩后达到该字节数时滚动，<= 0 不按大小滚动
+     * @param rollInterval 分片跨越该仿真时长 (ms) 时滚动，<= 0 不按时间滚动
+     * @param compressionLevel Deflate 压缩级别 1 (最快) - 9 (最小)，<= 0 取默认值
+     */
+    public static AsyncLogWriter start(String baseName, boolean binary, boolean includeMoveSteps, OverflowPolicy policy,
+                                       int capacity, long rollBytes, long rollInterval, int compressionLevel) {
+        AsyncLogWriter writer = new AsyncLogWriter(baseName, binary, includeMoveSteps, policy,
+                capacity, rollBytes, rollInterval, compressionLevel);
+        writer.worker = new Thread(writer::drainLoop, "async-log-writer");
+        writer.worker.setDaemon(true);
+        writer.worker.start();
+        return writer;
+    }
+
+    private AsyncLogWriter(String baseName, boolean binary, boolean includeMoveSteps, OverflowPolicy policy,
+                           int capacity, long rollBytes, long rollInterval, int compressionLevel) {
+        this.baseName = baseName;
+        this.binary = binary;
+        this.includeMoveSteps = includeMoveSteps;
+        this.policy = (policy != null) ? policy : OverflowPolicy.BLOCK;
+        this.rollBytes = rollBytes;
+        this.rollInterval = rollInterval;
+        this.compressionLevel = (compressionLevel > 0) ? Math.min(compressionLevel, 9) : DEFAULT_COMPRESSION_LEVEL;
+        int slots = Integer.highestOneBit(Math.max(2, capacity > 0 ? capacity : DEFAULT_CAPACITY) * 2 - 1);
+        this.mask = slots - 1;
+        this.timestamps = new long[slots];
+        this.positions = new long[slots];
+        this.entityIds = new String[slots];
+        this.instructionIds = new String[slots];
+        this.types = new EventType[slots];
+    }
+
+    // --- 仿真线程 ---
+
+    @Override
+    public void onEvent(SimEvent event) {
+        EventType type = event.getType();
+        if (type == EventType.MOVE_STEP && !includeMoveSteps) return;
+        checkFailure();
+        long t = tail.get();
+        if (t - head.getAcquire() > mask) {
+            if (type == EventType.MOVE_STEP && policy == OverflowPolicy.DROP_MOVE_STEPS) {
+                dropped++;
+                return;
+            }
+            stalls++;
+            awaitSpace(t);
+        }
+        int slot = (int) t & mask;
+        timestamps[slot] = event.getTimestamp();
+        positions[slot] = event.getPackedTargetPosition();
+        entityIds[slot] = event.getEntityId();
+        instructionIds[slot] = event.getInstructionId();
+        types[slot] = type;
+        tail.setRelease(t + 1);
+    }
+
+    private void awaitSpace(long t) {
+        LockSupport.unpark(worker);
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (t - head.getAcquire() <= mask) return;
+            Thread.onSpinWait();
+        }
+        waitingProducer = Thread.currentThread();
+        try {
+            while (t - head.getAcquire() > mask) {
+                LockSupport.unpark(worker);
+                LockSupport.parkNanos(this, STALL_PARK_NANOS);
+            }
+        } finally {
+            waitingProducer = null;
+        }
+    }
+
+    @Override
+    public void onFinish(long simTime) {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("异步日志写出失败: " + baseName, e);
+        }
+    }
+
+    /** 等待后台线程写完缓冲中的事件并关闭当前分片 */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        closing = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待异步日志写出被中断", e);
+        }
+        if (failure != null) throw new IOException("异步日志写出失败: " + baseName, failure);
+    }
+
+    private void checkFailure() {
+        if (failure != null) throw new UncheckedIOException(new IOException("异步日志写出失败: " + baseName, failure));
+    }
+
+    // --- 后台线程 ---
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                long h = head.get();
+                long t = tail.getAcquire();
+                if (h == t) {
+                    if (closing && tail.getAcquire() == h) break;
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (long i = h; i < t; i++) {
+                    int slot = (int) i & mask;
+                    write(slot);
+                    entityIds[slot] = null;
+                    instructionIds[slot] = null;
+                    // 分批归还槽位，背压下仿真线程不必等整批写完
+                    if ((i & 1023) == 1023) release(i + 1);
+                }
+                release(t);
+            }
+            closeChunk();
+        } catch (Throwable e) {
+            failure = e;
+            // 释放缓冲，避免仿真线程在背压中一直等待；之后的 onEvent 抛出异常
+            release(Long.MAX_VALUE / 2);
+        }
+    }
+
+    private void release(long consumed) {
+        head.setRelease(consumed);
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+
+    private void write(int slot) throws IOException {
+        long ts = timestamps[slot];
+        if (chunk != null && ((rollBytes > 0 && chunkBytes.count >= rollBytes)
+                || (rollInterval > 0 && ts - chunkStartTime >= rollInterval))) {
+            closeChunk();
+        }
+        if (chunk == null) openChunk(ts);
+        scratch.setTimestamp(ts);
+        scratch.setType(types[slot]);
+        scratch.setEntityId(entityIds[slot]);
+        scratch.setInstructionId(instructionIds[slot]);
+        scratch.setPackedTargetPosition(positions[slot]);
+        chunk.onEvent(scratch);
+        written++;
+    }
+
+    private void openChunk(long startTime) throws IOException {
+        chunkIndex++;
+        chunkStartTime = (rollInterval > 0) ? startTime - Math.floorMod(startTime, rollInterval) : startTime;
+        Path file = Path.of(String.format("%s_part%04d%s", baseName, chunkIndex, binary ? ".plog.gz" : ".json.gz"));
+        chunkBytes = new CountingOutputStream(Files.newOutputStream(file));
+        GZIPOutputStream gzip = new GZIPOutputStream(chunkBytes, 64 * 1024) {{ def.setLevel(compressionLevel); }};
+        chunk = binary
+                ? new BinaryLogWriter(Channels.newChannel(gzip), file, includeMoveSteps, BINARY_BLOCK_EVENTS)
+                : new JsonChunk(new BufferedOutputStream(gzip, 64 * 1024));
+    }
+
+    private void closeChunk() throws IOException {
+        if (chunk == null) return;
+        ((Closeable) chunk).close();
+        chunk = null;
+    }
+
+    /** 与 LogWriter 相同格式的 JSON 数组分片 */
+    private static final class JsonChunk implements EventSink, Closeable {
+        private static final ObjectMapper MAPPER = new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .registerModule(new JavaTimeModule());
+        private final JsonGenerator gen;
+
+        JsonChunk(OutputStream out) throws IOException {
+            gen = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartArray();
+        }
+
+        @Override
+        public void onEvent(SimEvent event) {
+            try {
+                gen.writeObject(event);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            gen.writeEndArray();
+            gen.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("异步日志[%s, 分片:%d, 写出:%d, 丢弃 MOVE_STEP:%d, 背压次数:%d]",
+                baseName, chunkIndex, written, dropped, stalls);
+    }
+}
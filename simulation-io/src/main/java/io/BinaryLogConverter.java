@@ -0,0 +1,64 @@
+package io;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 把二进制事件日志转回 LogWriter 的 JSON 格式，供现有工具使用；逐事件流式写出，内存不随日志大小增长。
+ * 输入可为 AsyncLogWriter 写出的压缩分片 (.plog.gz)，先解压到临时文件再映射读取。
+ * 用法: BinaryLogConverter <输入 .plog[.gz]> [输出 .json，默认同名]
+ */
+public class BinaryLogConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: BinaryLogConverter <输入 .plog[.gz]> [输出 .json]");
+            return;
+        }
+        Path in = Path.of(args[0]);
+        Path out = args.length > 1 ? Path.of(args[1]) : in.resolveSibling(in.getFileName().toString().replaceFirst("\\.plog(\\.gz)?$", "") + ".json");
+        long n = toJson(in, out);
+        System.out.println(">>> 已转换 " + n + " 条事件: " + out.toAbsolutePath());
+    }
+
+    /** @return 写出的事件数 */
+    public static long toJson(Path in, Path out) throws IOException {
+        if (in.getFileName().toString().endsWith(".gz")) {
+            Path tmp = Files.createTempFile("plog", ".plog");
+            try {
+                try (InputStream gz = new GZIPInputStream(Files.newInputStream(in))) {
+                    Files.copy(gz, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return toJson(tmp, out);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.registerModule(new JavaTimeModule());
+        long count = 0;
+        try (BinaryLogReader reader = new BinaryLogReader(in);
+             JsonGenerator gen = mapper.getFactory().createGenerator(out.toFile(), JsonEncoding.UTF8)) {
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartArray();
+            BinaryLogReader.Cursor c = reader.cursor();
+            while (c.next()) {
+                gen.writeObject(c.toEvent());
+                count++;
+            }
+            gen.writeEndArray();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,185 @@
+package io;
+
+import event.EventType;
+import event.SimEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * BinaryLogWriter 日志的读取端：打开时只扫描块头与字典建立索引，事件列经内存映射直接读取，
+ * 游标逐个访问字段而不创建对象；按时间范围读取时借助块头的最小/最大时间戳跳过无关块。
+ * 单个映射段不超过 1GB，更大的日志按块边界分段映射。
+ */
+public class BinaryLogReader implements Closeable {
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final EventType[] types;
+    // 字典 ID -> 字符串，下标 0 为 null
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long eventCount;
+
+    // columns 为列区在所属映射段内的偏移
+    private record Block(int segment, int columns, int count, long minTs, long maxTs) {}
+
+    public BinaryLogReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer head = read(0, 8);
+            if (head.getInt() != BinaryLogWriter.MAGIC) throw new IOException("不是二进制事件日志: " + file);
+            int version = head.getShort() & 0xFFFF;
+            if (version > BinaryLogWriter.FORMAT_VERSION) throw new IOException("二进制日志格式版本过新: " + version);
+            int typeCount = head.getShort() & 0xFFFF;
+            this.types = new EventType[typeCount];
+            long pos = 8;
+            for (int i = 0; i < typeCount; i++) {
+                int len = read(pos, 2).getShort() & 0xFFFF;
+                types[i] = EventType.valueOf(new String(read(pos + 2, len).array(), StandardCharsets.UTF_8));
+                pos += 2 + len;
+            }
+            pos = BinaryLogWriter.align((int) pos);
+            dictionary.add(null);
+            index(pos, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // 扫描块头与字典，按块边界切分映射段
+    private void index(long pos, long size) throws IOException {
+        long segmentStart = pos;
+        List<long[]> pending = new ArrayList<>(); // 当前段内的块: 文件偏移、列区相对块偏移、事件数、min、max
+        while (pos < size) {
+            ByteBuffer h = read(pos, BinaryLogWriter.BLOCK_HEADER_BYTES);
+            int length = h.getInt(), count = h.getInt();
+            long min = h.getLong(), max = h.getLong();
+            int dictCount = h.getInt(), dictBytes = h.getInt();
+            if (length <= 0 || pos + length > size) throw new IOException("二进制日志块不完整, 偏移 " + pos);
+            ByteBuffer d = read(pos + BinaryLogWriter.BLOCK_HEADER_BYTES, dictBytes);
+            for (int i = 0; i < dictCount; i++) {
+                byte[] s = new byte[d.getShort() & 0xFFFF];
+                d.get(s);
+                dictionary.add(new String(s, StandardCharsets.UTF_8));
+            }
+            if (pos + length - segmentStart > MAX_SEGMENT_BYTES && !pending.isEmpty()) {
+                mapSegment(segmentStart, pos, pending);
+                segmentStart = pos;
+            }
+            pending.add(new long[]{pos, BinaryLogWriter.BLOCK_HEADER_BYTES + BinaryLogWriter.align(dictBytes), count, min, max});
+            eventCount += count;
+            pos += length;
+        }
+        if (!pending.isEmpty()) mapSegment(segmentStart, pos, pending);
+    }
+
+    private void mapSegment(long start, long end, List<long[]> pending) throws IOException {
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(segment);
+        for (long[] b : pending) {
+            blocks.add(new Block(segments.size() - 1, (int) (b[0] - start + b[1]), (int) b[2], b[3], b[4]));
+        }
+        pending.clear();
+    }
+
+    private ByteBuffer read(long pos, int length) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (b.hasRemaining()) {
+            if (channel.read(b, pos + b.position()) < 0) throw new IOException("二进制日志意外结束, 偏移 " + pos);
+        }
+        return b.flip();
+    }
+
+    public long getEventCount() { return eventCount; }
+    public int getBlockCount() { return blocks.size(); }
+
+    /** 遍历全部事件 */
+    public Cursor cursor() {
+        return cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** 遍历时间戳在 [from, to] 内的事件 */
+    public Cursor cursor(long from, long to) {
+        return new Cursor(from, to);
+    }
+
+    /** 逐个物化为 SimEvent (非池化，可保留) */
+    public void forEach(Consumer<SimEvent> action) {
+        Cursor c = cursor();
+        while (c.next()) action.accept(c.toEvent());
+    }
+
+    /**
+     * 只读游标，字段直接取自映射内存；字符串字段返回字典中的共享实例
+     */
+    public final class Cursor {
+        private final long from;
+        private final long to;
+        private int blockIndex = -1;
+        private ByteBuffer buf;
+        private int base;
+        private int n;
+        private int i;
+
+        private Cursor(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public boolean next() {
+            while (true) {
+                if (buf != null) {
+                    while (++i < n) {
+                        long ts = timestamp();
+                        if (ts >= from && ts <= to) return true;
+                    }
+                }
+                if (!nextBlock()) return false;
+            }
+        }
+
+        private boolean nextBlock() {
+            while (++blockIndex < blocks.size()) {
+                Block b = blocks.get(blockIndex);
+                if (b.maxTs() < from || b.minTs() > to) continue;
+                buf = segments.get(b.segment());
+                base = b.columns();
+                n = b.count();
+                i = -1;
+                return true;
+            }
+            buf = null;
+            return false;
+        }
+
+        public long timestamp() { return buf.getLong(base + i * 8); }
+        public long packedPosition() { return buf.getLong(base + n * 8 + i * 8); }
+        public String entityId() { return dictionary.get(buf.getInt(base + n * 16 + i * 4)); }
+        public String instructionId() { return dictionary.get(buf.getInt(base + n * 20 + i * 4)); }
+        public EventType type() { return types[buf.get(base + n * 24 + i)]; }
+
+        public SimEvent toEvent() {
+            return new SimEvent(timestamp(), type(), entityId(), instructionId(), packedPosition());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
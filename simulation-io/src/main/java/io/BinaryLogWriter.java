@@ -0,0 +1,193 @@
+package io;
+
+import event.EventSink;
+import event.EventType;
+import event.SimEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制列式事件日志，作为事件订阅者边运行边追加写出，内存只占一个块。
+ * 文件头: 魔数 "PLOG"、格式版本、事件类型名表 (按序号)；之后为若干块，每块:
+ *   块头 (块字节数、事件数、最小/最大时间戳、新增字典项数、字典字节数)，
+ *   本块新增的字典项 (设备/指令 ID，按首次出现顺序编号，0 表示 null)，
+ *   定宽列: 时间戳 long[n]、目标位置 long[n]、设备 ID int[n]、指令 ID int[n]、类型序号 byte[n]。
+ * 各段按 8 字节对齐，小端序；读取见 BinaryLogReader，转回 JSON 见 BinaryLogConverter。
+ * 与 JSON 日志一样默认不含 MOVE_STEP，事件附加数据 (data) 不写出。
+ */
+public class BinaryLogWriter implements EventSink, Closeable {
+    static final int MAGIC = 0x504C4F47; // "PLOG"
+    static final int FORMAT_VERSION = 1;
+    static final int BLOCK_HEADER_BYTES = 32;
+    private static final int DEFAULT_BLOCK_EVENTS = 4096;
+
+    private final Path file;
+    private final WritableByteChannel channel;
+    private final boolean includeMoveSteps;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<byte[]> newStrings = new ArrayList<>();
+
+    // 当前块的列
+    private final long[] timestamps;
+    private final long[] positions;
+    private final int[] entityIds;
+    private final int[] instructionIds;
+    private final byte[] types;
+    private int size;
+    private ByteBuffer buffer;
+
+    private long eventCount;
+    private long blockCount;
+    private boolean closed;
+
+    public BinaryLogWriter(Path file) throws IOException {
+        this(file, false, DEFAULT_BLOCK_EVENTS);
+    }
+
+    /**
+     * @param includeMoveSteps 是否记录 MOVE_STEP (完整轨迹，体积大得多)
+     * @param blockEvents 每块事件数
+     */
+    public BinaryLogWriter(Path file, boolean includeMoveSteps, int blockEvents) throws IOException {
+        this(open(file), file, includeMoveSteps, blockEvents);
+    }
+
+    /** 写入任意通道 (如压缩流)，file 仅用于提示信息；关闭时一并关闭通道 */
+    public BinaryLogWriter(WritableByteChannel channel, Path file, boolean includeMoveSteps, int blockEvents) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.includeMoveSteps = includeMoveSteps;
+        this.timestamps = new long[blockEvents];
+        this.positions = new long[blockEvents];
+        this.entityIds = new int[blockEvents];
+        this.instructionIds = new int[blockEvents];
+        this.types = new byte[blockEvents];
+        writeHeader();
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private void writeHeader() throws IOException {
+        EventType[] all = EventType.values();
+        List<byte[]> names = new ArrayList<>(all.length);
+        int bytes = 4 + 2 + 2;
+        for (EventType t : all) {
+            byte[] name = t.name().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            bytes += 2 + name.length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(align(bytes)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort((short) FORMAT_VERSION).putShort((short) all.length);
+        for (byte[] name : names) header.putShort((short) name.length).put(name);
+        header.position(0);
+        writeFully(header);
+    }
+
+    @Override
+    public void onEvent(SimEvent event) {
+        if (!includeMoveSteps && event.getType() == EventType.MOVE_STEP) return;
+        timestamps[size] = event.getTimestamp();
+        positions[size] = event.getPackedTargetPosition();
+        entityIds[size] = idOf(event.getEntityId());
+        instructionIds[size] = idOf(event.getInstructionId());
+        types[size] = (byte) event.getType().ordinal();
+        if (++size == timestamps.length) flushBlock();
+    }
+
+    @Override
+    public void onFinish(long simTime) {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入二进制日志失败: " + file, e);
+        }
+    }
+
+    private int idOf(String s) {
+        if (s == null) return 0;
+        Integer id = dictionary.get(s);
+        if (id != null) return id;
+        int next = dictionary.size() + 1;
+        dictionary.put(s, next);
+        newStrings.add(s.getBytes(StandardCharsets.UTF_8));
+        return next;
+    }
+
+    private void flushBlock() {
+        if (size == 0) return;
+        int n = size;
+        int dictBytes = 0;
+        for (byte[] s : newStrings) dictBytes += 2 + s.length;
+        int total = BLOCK_HEADER_BYTES + align(dictBytes) + align(n * 25);
+        if (buffer == null || buffer.capacity() < total) buffer = ByteBuffer.allocateDirect(total).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.clear();
+
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, timestamps[i]);
+            max = Math.max(max, timestamps[i]);
+        }
+        buffer.putInt(total).putInt(n).putLong(min).putLong(max).putInt(newStrings.size()).putInt(dictBytes);
+        for (byte[] s : newStrings) buffer.putShort((short) s.length).put(s);
+        buffer.position(BLOCK_HEADER_BYTES + align(dictBytes));
+        for (int i = 0; i < n; i++) buffer.putLong(timestamps[i]);
+        for (int i = 0; i < n; i++) buffer.putLong(positions[i]);
+        for (int i = 0; i < n; i++) buffer.putInt(entityIds[i]);
+        for (int i = 0; i < n; i++) buffer.putInt(instructionIds[i]);
+        buffer.put(types, 0, n);
+        buffer.position(0).limit(total);
+        try {
+            writeFully(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入二进制日志失败: " + file, e);
+        }
+        newStrings.clear();
+        eventCount += n;
+        blockCount++;
+        size = 0;
+    }
+
+    private void writeFully(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) channel.write(b);
+    }
+
+    static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBlock();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public Path getFile() { return file; }
+
+    @Override
+    public String toString() {
+        return String.format("二进制日志[%s, 事件:%d, 块:%d, 字典:%d]", file, eventCount, blockCount, dictionary.size());
+    }
+}
@@ -12,22 +12,69 @@ public class ConfigLoader {
             MapSettings mapSettings,
             OutputSettings output,
             PathSettings paths,
-            StrategySettings strategies
+            StrategySettings strategies,
+            RoutingSettings routing,
+            EngineSettings engine
     ) {}
 
     public record SimulationConfig(String name) {}
     public record TimeSettings(long startTime, long endTime, long timeStep, int maxEvents) {}
     public record MapSettings(double cellSize) {}
-    public record OutputSettings(String logDir) {}
+    /**
+     * logFormat: 日志格式，json (默认，运行结束后整体写出) 或 binary (二进制列式，运行中逐块追加，见 BinaryLogWriter)
+     * asyncWriter: 经环形缓冲由后台线程写出，按大小/仿真时间滚动并 gzip 压缩分片 (见 AsyncLogWriter)；启用后不在内存中保留日志
+     * ringCapacity: 异步写出的缓冲槽数，<= 0 使用默认值
+     * overflowPolicy: 缓冲满时的策略，BLOCK (背压，默认) 或 DROP_MOVE_STEPS
+     * includeMoveSteps: 流式日志是否记录 MOVE_STEP
+     * rollBytes: 分片压缩后字节数上限，<= 0 不按大小滚动
+     * rollInterval: 分片覆盖的仿真时长 (ms)，<= 0 不按时间滚动
+     * compressionLevel: 分片压缩级别 1 (最快) - 9 (最小)，<= 0 使用默认值
+     */
+    public record OutputSettings(String logDir, String logFormat, boolean asyncWriter, int ringCapacity,
+                                 String overflowPolicy, boolean includeMoveSteps, long rollBytes, long rollInterval,
+                                 int compressionLevel) {}
     public record PathSettings(String mapFile, String taskFile, String entityFile) {}
+    /**
+     * analyzerClass: KPI 分析插件，默认 plugins.DefaultMetricsAnalyzer (运行结束后分析完整事件日志)；
+     * 设为 plugins.OnlineMetricsAnalyzer 改为运行中增量统计，内存不随事件数增长，适合长时间运行与重复实验
+     */
     public record StrategySettings(
             String routePlannerClass,
             String taskDispatcherClass,
             String taskGeneratorClass,
             String validatorClass,
-            String analyzerClass
+            String analyzerClass,
+            String timeEstimatorClass
     ) {}
 
+    /**
+     * cacheSize: 路径缓存容量，<= 0 表示不启用缓存
+     * precomputeDistances: 启动时预计算节点间距离矩阵
+     * exactHeuristic: 保留节点距离场，供规划器作为精确启发 (需同时开启 precomputeDistances)
+     * clusterSize: 分层规划 (HPA*) 的簇边长 (格)，<= 0 使用插件默认值
+     * reservations: 启用时空预约协同规划，规划时避开他车预约，减少受阻重试
+     * reservationHorizon: 预约规划允许的额外绕行/等待步数，<= 0 使用插件默认值
+     * incrementalReplanning: 为移动中的设备保留 D* Lite 会话，地图变化后增量修复路径
+     */
+    public record RoutingSettings(int cacheSize, boolean precomputeDistances, boolean exactHeuristic,
+                                  int clusterSize, boolean reservations, int reservationHorizon,
+                                  boolean incrementalReplanning) {}
+
+    /**
+     * entityStateStore: 实体运行时状态改存列式状态表 (EntityStateStore)，大规模车队下按状态/按格子扫描更快；
+     *                   启用后实体遍历顺序为注册顺序
+     * eventQueueClass: 待处理事件队列实现 (event.EventQueue)，如 event.HeapEventQueue、event.CalendarEventQueue，空则用二叉堆
+     * macroStepCells: 宏步移动单步最多前进的格数，附近无他车时整段占用并只调度一个到达事件；<= 1 为逐格推进
+     * parallelRegions: 分区并行引擎的区域数，<= 1 使用顺序引擎；结果与顺序引擎一致
+     * parallelThreads: 分区并行的线程数，<= 0 取可用处理器数
+     * checkpointInterval: 周期检查点的仿真时间间隔 (ms)，<= 0 不写检查点
+     * checkpointDir: 检查点文件目录
+     * realTimeFactor: 实时步进倍速 (每墙钟毫秒推进的仿真毫秒数)，> 0 时按墙钟节奏运行 (数字孪生)，优先于分区并行；<= 0 尽快运行
+     */
+    public record EngineSettings(boolean entityStateStore, String eventQueueClass, int macroStepCells,
+                                 int parallelRegions, int parallelThreads,
+                                 long checkpointInterval, String checkpointDir, double realTimeFactor) {}
+
     public AppConfig load(String path) throws Exception {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
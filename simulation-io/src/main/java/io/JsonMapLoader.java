@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import map.GridMap;
 import map.Location;
+import map.RoadGraph;
 import java.io.File;
+import java.util.Arrays;
 
 public class JsonMapLoader {
     public GridMap loadGridMap(String filePath, double cellSize) throws Exception {
@@ -29,29 +31,44 @@ public class JsonMapLoader {
             gridMap.setWalkable(gx, gy, true);
         }
 
+        // 栅格化的同时保留路段拓扑，供路网图寻路使用
+        RoadGraph.Builder graph = RoadGraph.builder(gridMap);
         for (JsonNode s : root.path("segments")) {
-            Location from = gridMap.getNodeLocation(s.path("from").asText());
-            Location to = gridMap.getNodeLocation(s.path("to").asText());
+            String fromId = s.path("from").asText(), toId = s.path("to").asText();
+            Location from = gridMap.getNodeLocation(fromId);
+            Location to = gridMap.getNodeLocation(toId);
             if (from != null && to != null) {
-                rasterizeLine(gridMap, from, to);
+                int[] cells = rasterizeLine(gridMap, from, to);
+                graph.addSegment(fromId, toId, cells, s.path("isOneWay").asBoolean(false));
             }
         }
+        gridMap.setRoadGraph(graph.build());
         return gridMap;
     }
 
-    private void rasterizeLine(GridMap map, Location p1, Location p2) {
+    // 返回依次经过的格子索引 (含两端)，4 邻接：Bresenham 的对角步拆为先沿 x 再沿 y 两步，拐角格同样标为可通行
+    private int[] rasterizeLine(GridMap map, Location p1, Location p2) {
         int x0 = p1.x(), y0 = p1.y();
         int x1 = p2.x(), y1 = p2.y();
         int dx = Math.abs(x1 - x0), dy = Math.abs(y1 - y0);
         int sx = x0 < x1 ? 1 : -1, sy = y0 < y1 ? 1 : -1;
         int err = dx - dy;
+        int[] cells = new int[dx + dy + 1];
+        int n = 0;
 
         while (true) {
             map.setWalkable(x0, y0, true);
+            cells[n++] = map.cellIndex(x0, y0);
             if (x0 == x1 && y0 == y1) break;
             int e2 = 2 * err;
-            if (e2 > -dy) { err -= dy; x0 += sx; }
-            if (e2 < dx) { err += dx; y0 += sy; }
+            boolean stepX = e2 > -dy, stepY = e2 < dx;
+            if (stepX) { err -= dy; x0 += sx; }
+            if (stepX && stepY) {
+                map.setWalkable(x0, y0, true);
+                cells[n++] = map.cellIndex(x0, y0);
+            }
+            if (stepY) { err += dx; y0 += sy; }
         }
+        return Arrays.copyOf(cells, n);
     }
 }
\ No newline at end of file
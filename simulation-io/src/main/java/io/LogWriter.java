@@ -26,14 +26,19 @@ public class LogWriter {
     public void writeLog(List<SimEvent> events, String directoryPath) {
         if (directoryPath == null || directoryPath.isEmpty()) return;
         try {
-            Path path = Paths.get(directoryPath);
-            if (!Files.exists(path)) Files.createDirectories(path);
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            File file = path.resolve("simulation_log_" + timestamp + ".json").toFile();
+            File file = newLogFile(directoryPath, ".json").toFile();
             objectMapper.writeValue(file, events);
             System.out.println(">>> [成功] 仿真日志已保存: " + file.getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /** 日志目录下以当前时间命名的新日志文件，目录不存在时创建 */
+    public static Path newLogFile(String directoryPath, String extension) throws IOException {
+        Path path = Paths.get(directoryPath);
+        if (!Files.exists(path)) Files.createDirectories(path);
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        return path.resolve("simulation_log_" + timestamp + extension);
+    }
+}
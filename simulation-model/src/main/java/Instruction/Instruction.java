@@ -1,11 +1,14 @@
 package Instruction;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
-public class Instruction {
+public class Instruction implements Cloneable {
     @JsonProperty("id")
     private String instructionId;
 
@@ -34,6 +37,57 @@ public class Instruction {
         this.generateTime = Instant.now();
     }
 
+    /** 复制一份独立的指令 (字段均为不可变值)，供多次仿真各自修改状态 */
+    public Instruction copy() {
+        try {
+            return (Instruction) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** 写入检查点 (全部字段) */
+    public void writeTo(CheckpointOutput out) throws IOException {
+        out.writeString(instructionId);
+        out.writeString(type != null ? type.name() : null);
+        out.writeString(origin);
+        out.writeString(destination);
+        out.writeDouble(containerWeight);
+        out.writeString(targetQC);
+        out.writeString(targetYC);
+        out.writeString(targetIT);
+        out.writeLong(priority);
+        out.writeString(status);
+        out.writeBoolean(generateTime != null);
+        if (generateTime != null) {
+            out.writeLong(generateTime.getEpochSecond());
+            out.writeVarInt(generateTime.getNano());
+        }
+        out.writeLong(startTime);
+        out.writeLong(endTime);
+        out.writeLong(expectedDuration);
+    }
+
+    public static Instruction readFrom(CheckpointInput in) throws IOException {
+        Instruction i = new Instruction();
+        i.instructionId = in.readString();
+        String type = in.readString();
+        i.type = (type != null) ? InstructionType.valueOf(type) : null;
+        i.origin = in.readString();
+        i.destination = in.readString();
+        i.containerWeight = in.readDouble();
+        i.targetQC = in.readString();
+        i.targetYC = in.readString();
+        i.targetIT = in.readString();
+        i.priority = (int) in.readLong();
+        i.status = in.readString();
+        if (in.readBoolean()) i.generateTime = Instant.ofEpochSecond(in.readLong(), in.readVarInt());
+        i.startTime = in.readLong();
+        i.endTime = in.readLong();
+        i.expectedDuration = in.readLong();
+        return i;
+    }
+
     public String getInstructionId() { return instructionId; }
     public void setInstructionId(String id) { this.instructionId = id; }
 
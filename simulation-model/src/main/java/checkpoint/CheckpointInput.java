@@ -0,0 +1,63 @@
+package checkpoint;
+
+import map.Location;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检查点分段的读取端，与 CheckpointOutput 的编码一一对应
+ */
+public final class CheckpointInput {
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    CheckpointInput(byte[] section) {
+        this.in = new DataInputStream(new ByteArrayInputStream(section));
+    }
+
+    public boolean readBoolean() throws IOException { return in.readBoolean(); }
+    public int readByte() throws IOException { return in.readByte(); }
+    public double readDouble() throws IOException { return in.readDouble(); }
+
+    public int readVarInt() throws IOException { return (int) readVarLong(); }
+
+    public long readLong() throws IOException {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public Location readLocation() throws IOException {
+        if (!readBoolean()) return null;
+        long packed = readLong();
+        return new Location(Location.unpackX(packed), Location.unpackY(packed));
+    }
+
+    public String readString() throws IOException {
+        int handle = readVarInt();
+        if (handle == 0) return null;
+        if (handle <= strings.size()) return strings.get(handle - 1);
+        if (handle != strings.size() + 1) throw new IOException("检查点字符串句柄无效: " + handle);
+        String s = in.readUTF();
+        strings.add(s);
+        return s;
+    }
+
+    public byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readVarInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("检查点变长整数过长");
+    }
+}
@@ -0,0 +1,68 @@
+package checkpoint;
+
+import map.Location;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 检查点分段的写出端：整数用变长编码，字符串在分段内驻留 (首次写出内容，之后只写句柄)，
+ * 设备/指令 ID 在事件与状态中大量重复，驻留后文件体积主要由数值决定。
+ */
+public final class CheckpointOutput {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public void writeBoolean(boolean v) throws IOException { out.writeBoolean(v); }
+    public void writeByte(int v) throws IOException { out.writeByte(v); }
+    public void writeDouble(double v) throws IOException { out.writeDouble(v); }
+
+    /** 非负整数 (如数量) 的变长编码 */
+    public void writeVarInt(int v) throws IOException { writeVarLong(v & 0xFFFFFFFFL); }
+
+    /** 按 zigzag 变长编码写出 long，时间戳等小数值只占少量字节 */
+    public void writeLong(long v) throws IOException { writeVarLong((v << 1) ^ (v >> 63)); }
+
+    public void writeLocation(Location loc) throws IOException {
+        writeBoolean(loc != null);
+        if (loc != null) writeLong(loc.pack());
+    }
+
+    /** 可为 null；句柄 0 表示 null，其余为 驻留序号 + 1，首次出现时紧跟字符串内容 */
+    public void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer handle = strings.get(s);
+        if (handle != null) {
+            writeVarInt(handle + 1);
+            return;
+        }
+        int h = strings.size();
+        strings.put(s, h);
+        writeVarInt(h + 1);
+        out.writeUTF(s);
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    byte[] toByteArray() throws IOException {
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
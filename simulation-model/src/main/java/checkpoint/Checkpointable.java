@@ -0,0 +1,24 @@
+package checkpoint;
+
+import Instruction.Instruction;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * 可写入检查点的组件。每个组件在检查点文件中占一个以 checkpointKey 标识的分段，分段带组件自己的版本号；
+ * 组件只需按版本读回自己写出的字段，文件中多出的分段会被跳过，缺失的分段对应组件保持当前状态。
+ * 恢复前组件已按配置装配 (含 init)，restoreState 需以检查点内容整体替换运行时状态。
+ */
+public interface Checkpointable {
+    String checkpointKey();
+
+    /** 当前写出格式的版本，读取时传回分段中记录的版本 */
+    default int checkpointVersion() { return 1; }
+
+    void saveState(CheckpointOutput out) throws IOException;
+
+    /**
+     * @param instructions 按 ID 查找调度器恢复后的指令对象，引用指令的组件须经此共享同一实例
+     */
+    void restoreState(CheckpointInput in, int version, Function<String, Instruction> instructions) throws IOException;
+}
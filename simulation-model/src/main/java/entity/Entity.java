@@ -1,11 +1,16 @@
 package entity;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import map.Location;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 @JsonTypeInfo(
         use = JsonTypeInfo.Id.NAME,
@@ -18,7 +23,7 @@ import java.util.List;
         @JsonSubTypes.Type(value = YC.class, name = "YC"),
         @JsonSubTypes.Type(value = IT.class, name = "IT")
 })
-public abstract class Entity {
+public abstract class Entity implements Cloneable {
     // 关键修复：显式映射 JSON 字段
     @JsonProperty("id")
     protected String id;
@@ -29,11 +34,18 @@ public abstract class Entity {
     @JsonProperty("initialPosition")
     protected String initialPosition;
 
-    // 运行时状态 (不序列化)
+    // 运行时状态 (不序列化)；加入 EntityStateStore 后以表中列为准，以下字段只作加入前的初值
     protected Location currentLocation;
     protected String currentInstructionId;
     protected EntityStatus status = EntityStatus.IDLE;
-    protected List<Location> remainingPath = new LinkedList<>();
+    double loadWeight;
+    EntityStateStore store;
+    int ordinal = -1;
+    // 路径只读持有 + 游标推进，不再逐格删除；惰性路径 (如分层规划结果) 因此只在走到时才展开
+    protected List<Location> remainingPath = Collections.emptyList();
+    protected int pathCursor;
+    // 设置路径时记下终点，之后取终点不再访问 (惰性) 路径
+    protected Location pathGoal;
 
     public Entity() {}
 
@@ -47,23 +59,95 @@ public abstract class Entity {
     public EntityType getType() { return type; }
     public String getInitialNodeId() { return initialPosition; }
 
-    public Location getCurrentLocation() { return currentLocation; }
-    public void setCurrentLocation(Location location) { this.currentLocation = location; }
+    public Location getCurrentLocation() { return store != null ? store.location(ordinal) : currentLocation; }
+    public void setCurrentLocation(Location location) {
+        if (store != null) store.setPosition(ordinal, location);
+        else this.currentLocation = location;
+    }
 
-    public String getCurrentInstructionId() { return currentInstructionId; }
-    public void setCurrentInstructionId(String id) { this.currentInstructionId = id; }
+    public String getCurrentInstructionId() { return store != null ? store.instructionId(ordinal) : currentInstructionId; }
+    public void setCurrentInstructionId(String id) {
+        if (store != null) store.setInstructionId(ordinal, id);
+        else this.currentInstructionId = id;
+    }
 
-    public EntityStatus getStatus() { return status; }
-    public void setStatus(EntityStatus status) { this.status = status; }
+    public EntityStatus getStatus() { return store != null ? store.status(ordinal) : status; }
+    public void setStatus(EntityStatus status) {
+        if (store != null) store.setStatus(ordinal, status);
+        else this.status = status;
+    }
+
+    public double getCurrentLoadWeight() { return store != null ? store.loadWeight(ordinal) : loadWeight; }
+    protected void setLoadWeight(double weight) {
+        if (store != null) store.setLoadWeight(ordinal, weight);
+        else this.loadWeight = weight;
+    }
 
+    /** 所属的列式状态表序号，未加入时为 -1 */
+    public int getStateOrdinal() { return ordinal; }
+
+    /** 规划器返回的随机访问路径直接持有 (调用方不得再修改)，其余列表拷贝一份 */
     public void setRemainingPath(List<Location> path) {
-        this.remainingPath = (path != null) ? new LinkedList<>(path) : new LinkedList<>();
+        if (path == null) this.remainingPath = Collections.emptyList();
+        else this.remainingPath = (path instanceof RandomAccess) ? path : new ArrayList<>(path);
+        this.pathCursor = 0;
+        this.pathGoal = remainingPath.isEmpty() ? null : remainingPath.get(remainingPath.size() - 1);
+    }
+    public List<Location> getRemainingPath() {
+        return Collections.unmodifiableList(remainingPath.subList(pathCursor, remainingPath.size()));
     }
-    public List<Location> getRemainingPath() { return remainingPath; }
-    public boolean hasRemainingPath() { return remainingPath != null && !remainingPath.isEmpty(); }
+    public boolean hasRemainingPath() { return pathCursor < remainingPath.size(); }
+
+    public Location peekNextStep() { return hasRemainingPath() ? remainingPath.get(pathCursor) : null; }
+    public Location getPathGoal() { return hasRemainingPath() ? pathGoal : null; }
 
     public Location popNextStep() {
-        return hasRemainingPath() ? remainingPath.remove(0) : null;
+        return hasRemainingPath() ? remainingPath.get(pathCursor++) : null;
+    }
+
+    /** 持有的整条路径 (含已走过的部分) 与游标，供检查点按原样 (不展开惰性路径) 写出 */
+    public List<Location> getHeldPath() { return remainingPath; }
+    public int getPathCursor() { return pathCursor; }
+
+    /** 从检查点恢复路径、游标与终点，不访问路径内容 */
+    public void restorePath(List<Location> path, int cursor, Location goal) {
+        this.remainingPath = path;
+        this.pathCursor = cursor;
+        this.pathGoal = goal;
+    }
+
+    /**
+     * 复制一份独立的运行时实体 (当前状态取自状态表)，副本不属于任何状态表，可注册到另一次仿真。
+     * 路径列表只读持有，副本与原实体共享无妨。
+     */
+    public Entity copy() {
+        try {
+            Entity c = (Entity) super.clone();
+            c.currentLocation = getCurrentLocation();
+            c.currentInstructionId = getCurrentInstructionId();
+            c.status = getStatus();
+            c.loadWeight = getCurrentLoadWeight();
+            c.store = null;
+            c.ordinal = -1;
+            return c;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** 写入检查点：位置、状态、指令与载重；路径由调度器按原样写出 (见 getHeldPath) */
+    public void writeState(CheckpointOutput out) throws IOException {
+        out.writeLocation(getCurrentLocation());
+        out.writeString(getStatus().name());
+        out.writeString(getCurrentInstructionId());
+        out.writeDouble(getCurrentLoadWeight());
+    }
+
+    public void readState(CheckpointInput in) throws IOException {
+        setCurrentLocation(in.readLocation());
+        setStatus(EntityStatus.valueOf(in.readString()));
+        setCurrentInstructionId(in.readString());
+        setLoadWeight(in.readDouble());
     }
 
     public abstract double getMaxSpeed();
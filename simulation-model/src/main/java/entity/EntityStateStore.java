@@ -0,0 +1,174 @@
+package entity;
+
+import map.GridMap;
+import map.Location;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 列式实体状态表：位置、状态、当前指令、载重按稠密序号存放在数组中，指令列直接存 ID 引用 (不驻留，指令结束后随之释放)。
+ * 实体加入后成为该表的视图 (getter/setter 读写对应列)，按状态或按格子扫描时只遍历连续数组，
+ * 不再逐个对象跳转；同格实体以侵入式双向链表挂在格子索引上。
+ * 序号按加入顺序分配，扫描结果也按序号升序。非线程安全，与调度器同线程使用。
+ */
+public final class EntityStateStore {
+    public static final long NO_POSITION = Long.MIN_VALUE;
+    private static final EntityStatus[] STATUSES = EntityStatus.values();
+
+    private final GridMap gridMap;
+    private final Map<String, Integer> idToOrdinal = new HashMap<>();
+    private int size;
+
+    private Entity[] views;
+    private long[] positions;
+    private byte[] statuses;
+    private String[] instructions;
+    private double[] loadWeights;
+
+    // 同格链表：cellHead[cell] 为该格首个实体序号，-1 表示无
+    private int[] cellHead;
+    private int[] nextAtCell;
+    private int[] prevAtCell;
+
+    public EntityStateStore(GridMap gridMap, int expectedEntities) {
+        this.gridMap = gridMap;
+        int capacity = Math.max(16, expectedEntities);
+        views = new Entity[capacity];
+        positions = new long[capacity];
+        statuses = new byte[capacity];
+        instructions = new String[capacity];
+        loadWeights = new double[capacity];
+        nextAtCell = new int[capacity];
+        prevAtCell = new int[capacity];
+        cellHead = new int[gridMap.getCellCount()];
+        Arrays.fill(cellHead, -1);
+    }
+
+    /** 加入实体并将其当前状态迁入列中，此后实体读写均落在本表；重复加入返回原序号 */
+    public int add(Entity entity) {
+        if (entity.store == this) return entity.ordinal;
+        if (entity.store != null) throw new IllegalStateException("实体已属于其他状态表: " + entity.getId());
+        Integer existing = idToOrdinal.get(entity.getId());
+        if (existing != null) throw new IllegalStateException("实体ID重复: " + entity.getId());
+        if (size == views.length) grow(size * 2);
+
+        int ordinal = size++;
+        views[ordinal] = entity;
+        positions[ordinal] = NO_POSITION;
+        nextAtCell[ordinal] = -1;
+        prevAtCell[ordinal] = -1;
+        statuses[ordinal] = (byte) entity.status.ordinal();
+        instructions[ordinal] = entity.currentInstructionId;
+        loadWeights[ordinal] = entity.loadWeight;
+        idToOrdinal.put(entity.getId(), ordinal);
+        setPosition(ordinal, entity.currentLocation);
+        entity.store = this;
+        entity.ordinal = ordinal;
+        return ordinal;
+    }
+
+    public int size() { return size; }
+    public Entity entity(int ordinal) { return views[ordinal]; }
+    public int ordinalOf(String entityId) { return idToOrdinal.getOrDefault(entityId, -1); }
+
+    // --- 列访问 ---
+
+    public Location location(int ordinal) {
+        long p = positions[ordinal];
+        return p == NO_POSITION ? null : gridMap.location(Location.unpackX(p), Location.unpackY(p));
+    }
+
+    public long packedPosition(int ordinal) { return positions[ordinal]; }
+
+    public void setPosition(int ordinal, Location loc) {
+        long packed = (loc == null) ? NO_POSITION : loc.pack();
+        if (positions[ordinal] == packed) return;
+        unlinkCell(ordinal);
+        positions[ordinal] = packed;
+        linkCell(ordinal);
+    }
+
+    public EntityStatus status(int ordinal) { return STATUSES[statuses[ordinal]]; }
+    public void setStatus(int ordinal, EntityStatus status) { statuses[ordinal] = (byte) status.ordinal(); }
+
+    public String instructionId(int ordinal) { return instructions[ordinal]; }
+    public void setInstructionId(int ordinal, String instructionId) { instructions[ordinal] = instructionId; }
+
+    public double loadWeight(int ordinal) { return loadWeights[ordinal]; }
+    public void setLoadWeight(int ordinal, double weight) { loadWeights[ordinal] = weight; }
+
+    // --- 扫描 ---
+
+    /** 按序号升序回调处于该状态的实体 */
+    public void forEachWithStatus(EntityStatus status, IntConsumer action) {
+        byte s = (byte) status.ordinal();
+        for (int i = 0; i < size; i++) if (statuses[i] == s) action.accept(i);
+    }
+
+    public int countWithStatus(EntityStatus status) {
+        byte s = (byte) status.ordinal();
+        int n = 0;
+        for (int i = 0; i < size; i++) if (statuses[i] == s) n++;
+        return n;
+    }
+
+    /** 回调位于该格的实体；回调中不得移动实体 */
+    public void forEachAt(Location loc, IntConsumer action) {
+        if (loc == null) return;
+        int cell = cellOf(loc.pack());
+        if (cell >= 0) {
+            for (int i = cellHead[cell]; i >= 0; i = nextAtCell[i]) action.accept(i);
+            return;
+        }
+        // 地图外坐标不入格子链表，退化为线性扫描
+        long packed = loc.pack();
+        for (int i = 0; i < size; i++) if (positions[i] == packed) action.accept(i);
+    }
+
+    // --- 内部 ---
+
+    private int cellOf(long packed) {
+        if (packed == NO_POSITION) return -1;
+        int x = Location.unpackX(packed), y = Location.unpackY(packed);
+        if (x < 0 || y < 0 || x >= gridMap.getWidth() || y >= gridMap.getHeight()) return -1;
+        return gridMap.cellIndex(x, y);
+    }
+
+    private void linkCell(int ordinal) {
+        int cell = cellOf(positions[ordinal]);
+        if (cell < 0) return;
+        int head = cellHead[cell];
+        nextAtCell[ordinal] = head;
+        prevAtCell[ordinal] = -1;
+        if (head >= 0) prevAtCell[head] = ordinal;
+        cellHead[cell] = ordinal;
+    }
+
+    private void unlinkCell(int ordinal) {
+        int cell = cellOf(positions[ordinal]);
+        if (cell < 0) return;
+        int prev = prevAtCell[ordinal], next = nextAtCell[ordinal];
+        if (prev >= 0) nextAtCell[prev] = next;
+        else cellHead[cell] = next;
+        if (next >= 0) prevAtCell[next] = prev;
+        nextAtCell[ordinal] = -1;
+        prevAtCell[ordinal] = -1;
+    }
+
+    private void grow(int capacity) {
+        views = Arrays.copyOf(views, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        instructions = Arrays.copyOf(instructions, capacity);
+        loadWeights = Arrays.copyOf(loadWeights, capacity);
+        nextAtCell = Arrays.copyOf(nextAtCell, capacity);
+        prevAtCell = Arrays.copyOf(prevAtCell, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "实体状态表[实体:" + size + "]";
+    }
+}
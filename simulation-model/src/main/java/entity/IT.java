@@ -5,7 +5,6 @@ import java.util.Map;
 
 public class IT extends Entity {
     private double maxLoadWeight;
-    private double currentLoadWeight;
     private double maxSpeed;
     private double acceleration;
     private double deceleration;
@@ -28,7 +27,7 @@ public class IT extends Entity {
     @Override public double getAcceleration() { return acceleration; }
     @Override public double getDeceleration() { return deceleration; }
 
-    public void setCurrentLoadWeight(double weight) { this.currentLoadWeight = weight; }
-    public boolean isLoaded() { return currentLoadWeight > 0; }
-    public void clearLoad() { this.currentLoadWeight = 0.0; }
+    public void setCurrentLoadWeight(double weight) { setLoadWeight(weight); }
+    public boolean isLoaded() { return getCurrentLoadWeight() > 0; }
+    public void clearLoad() { setLoadWeight(0.0); }
 }
\ No newline at end of file
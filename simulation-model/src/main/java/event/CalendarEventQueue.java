@@ -0,0 +1,254 @@
+package event;
+
+import java.util.Arrays;
+
+/**
+ * 日历队列 (Brown, 1988)：按 floor(时间戳 / 桶宽) 取模散列到环形桶数组，每个桶内按 (时间戳, 序号) 有序。
+ * 出队时从当前桶起按"年"推进，只取落在本年窗口内的桶首事件；事件间隔较均匀时入队/出队均摊 O(1)。
+ * 事件数超过桶数 2 倍或少于一半时重建：取最早的若干个不同时间戳，按 Brown 的做法剔除大于两倍均值的间隔后求平均间隔
+ * (同刻事件的零间隔不计)，再按其间的事件数折算为平均每事件间隔，桶宽取其 3 倍，且不小于最小正间隔
+ * (同刻事件本就无法分桶，更窄只会空转)；不足两个不同时间戳时保持原桶宽。
+ * 事件数稳定时不会因规模触发重建，因此另行统计入队移位与出队空桶扫描的开销，平均每次操作超过阈值时按原桶数重估桶宽。
+ * 同一时间戳的事件必在同一桶内且按入队序号排列，保证 FIFO。非线程安全。
+ */
+public class CalendarEventQueue implements EventQueue {
+    private static final int MIN_BUCKETS = 16;
+    private static final int SAMPLE_SIZE = 32;
+    // 平均每次入队/出队的移位与空桶扫描超过该值时按原桶数重估桶宽
+    private static final int COST_THRESHOLD = 16;
+
+    private Bucket[] buckets;
+    private int mask;
+    private long width;
+    private int size;
+    private long nextSequence;
+
+    // 出队游标：当前桶、其本年窗口的上界 (不含) 与最近出队时间
+    private int current;
+    private long bucketTop;
+    private long lastTime;
+
+    private long resizes;
+    // 自上次重建以来的操作数与开销
+    private long operations;
+    private long cost;
+
+    public CalendarEventQueue() {
+        this(MIN_BUCKETS, 1000);
+    }
+
+    /**
+     * @param initialBuckets 初始桶数 (向上取 2 的幂)
+     * @param initialWidth 初始桶宽 (时间单位)，首次重建后按实际事件间隔调整
+     */
+    public CalendarEventQueue(int initialBuckets, long initialWidth) {
+        int n = Integer.highestOneBit(Math.max(MIN_BUCKETS, initialBuckets) - 1) << 1;
+        this.width = Math.max(1, initialWidth);
+        allocate(n);
+    }
+
+    @Override
+    public void add(SimEvent event) {
+        event.setSequence(nextSequence++);
+        insert(event);
+        if (size > 2 * buckets.length) resize(buckets.length * 2);
+        else checkCost();
+    }
+
+    @Override
+    public SimEvent poll() {
+        if (size == 0) return null;
+        SimEvent e = buckets[locate()].removeFirst();
+        size--;
+        if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) resize(buckets.length / 2);
+        else checkCost();
+        return e;
+    }
+
+    @Override
+    public SimEvent peek() {
+        return size == 0 ? null : buckets[locate()].first();
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public void clear() {
+        for (Bucket b : buckets) b.clear();
+        size = 0;
+    }
+
+    public int getBucketCount() { return buckets.length; }
+    public long getBucketWidth() { return width; }
+    public long getResizeCount() { return resizes; }
+
+    @Override
+    public String toString() {
+        return "日历队列[事件:" + size + ", 桶数:" + buckets.length + ", 桶宽:" + width + ", 重建:" + resizes + "]";
+    }
+
+    // --- 内部 ---
+
+    private void insert(SimEvent event) {
+        long ts = event.getTimestamp();
+        // 空队列或早于游标的事件：游标移到该事件所在窗口
+        if (size == 0 || ts < lastTime) moveCursor(ts);
+        cost += buckets[bucketOf(ts)].insert(event);
+        size++;
+    }
+
+    // 累计开销超出 阈值 x (操作数 + 桶数) 即重建：重建本身 O(n)，由已超出的开销抵偿；约两倍桶数次操作后重新计数
+    private void checkCost() {
+        operations++;
+        if (cost > COST_THRESHOLD * (operations + buckets.length)) {
+            resize(buckets.length);
+        } else if (operations >= 2L * buckets.length) {
+            operations = 0;
+            cost = 0;
+        }
+    }
+
+    // 定位最早事件所在的桶并把游标停在该桶，调用前 size > 0
+    private int locate() {
+        int i = current;
+        long top = bucketTop;
+        for (int n = 0; n < buckets.length; n++) {
+            Bucket b = buckets[i];
+            if (!b.isEmpty() && b.first().getTimestamp() < top) {
+                current = i;
+                bucketTop = top;
+                lastTime = b.first().getTimestamp();
+                cost += n;
+                return i;
+            }
+            i = (i + 1) & mask;
+            top += width;
+        }
+        // 一整年内无事件 (时间跨度远大于一年)：直接找全局最早事件
+        cost += 2L * buckets.length;
+        int best = -1;
+        for (int k = 0; k < buckets.length; k++) {
+            if (buckets[k].isEmpty()) continue;
+            if (best < 0 || EventQueue.ORDER.compare(buckets[k].first(), buckets[best].first()) < 0) best = k;
+        }
+        moveCursor(buckets[best].first().getTimestamp());
+        return best;
+    }
+
+    private void moveCursor(long ts) {
+        long window = Math.floorDiv(ts, width);
+        current = (int) (window & mask);
+        bucketTop = (window + 1) * width;
+        lastTime = ts;
+    }
+
+    private int bucketOf(long ts) { return (int) (Math.floorDiv(ts, width) & mask); }
+
+    private void resize(int bucketCount) {
+        resizes++;
+        SimEvent[] all = new SimEvent[size];
+        // 按出队顺序取出最早的若干个不同时间戳上的事件，记下相邻不同时间戳的正间隔
+        long[] gaps = new long[SAMPLE_SIZE - 1];
+        int g = 0;
+        int n = 0;
+        while (size > 0) {
+            SimEvent e = buckets[locate()].first();
+            if (n > 0 && e.getTimestamp() != all[n - 1].getTimestamp()) {
+                if (g == gaps.length) break;
+                gaps[g++] = e.getTimestamp() - all[n - 1].getTimestamp();
+            }
+            all[n++] = buckets[current].removeFirst();
+            size--;
+        }
+        int sampled = n;
+        for (Bucket b : buckets) n = b.drainTo(all, n);
+        width = estimateWidth(gaps, g, sampled);
+        allocate(bucketCount);
+        size = 0;
+        for (int i = 0; i < n; i++) insert(all[i]);
+        operations = 0;
+        cost = 0;
+    }
+
+    // sampled 为这些间隔覆盖的事件数 (含同刻事件)
+    private long estimateWidth(long[] gaps, int g, int sampled) {
+        if (g == 0) return width;
+        long sum = 0, minGap = Long.MAX_VALUE;
+        for (int i = 0; i < g; i++) {
+            sum += gaps[i];
+            minGap = Math.min(minGap, gaps[i]);
+        }
+        double mean = (double) sum / g;
+        long kept = 0;
+        int keptCount = 0;
+        for (int i = 0; i < g; i++) {
+            if (gaps[i] <= 2 * mean) {
+                kept += gaps[i];
+                keptCount++;
+            }
+        }
+        long estimate = Math.round(3.0 * kept / keptCount * g / (sampled - 1));
+        return Math.max(Math.max(1, minGap), estimate);
+    }
+
+    private void allocate(int bucketCount) {
+        buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) buckets[i] = new Bucket();
+        mask = bucketCount - 1;
+    }
+
+    // 桶内按 (时间戳, 序号) 升序的数组段 [head, tail)；新事件通常晚于桶内已有事件，插入多为追加
+    private static final class Bucket {
+        private SimEvent[] items = new SimEvent[4];
+        private int head;
+        private int tail;
+
+        boolean isEmpty() { return head == tail; }
+        SimEvent first() { return items[head]; }
+
+        // 返回移位的事件数
+        int insert(SimEvent e) {
+            if (tail == items.length) {
+                if (head > 0) {
+                    System.arraycopy(items, head, items, 0, tail - head);
+                    Arrays.fill(items, tail - head, tail, null);
+                    tail -= head;
+                    head = 0;
+                } else {
+                    items = Arrays.copyOf(items, items.length * 2);
+                }
+            }
+            int pos = tail;
+            long ts = e.getTimestamp();
+            while (pos > head && (items[pos - 1].getTimestamp() > ts
+                    || (items[pos - 1].getTimestamp() == ts && items[pos - 1].getSequence() > e.getSequence()))) {
+                items[pos] = items[pos - 1];
+                pos--;
+            }
+            items[pos] = e;
+            return tail++ - pos;
+        }
+
+        SimEvent removeFirst() {
+            SimEvent e = items[head];
+            items[head++] = null;
+            if (head == tail) head = tail = 0;
+            return e;
+        }
+
+        int drainTo(SimEvent[] out, int offset) {
+            for (int i = head; i < tail; i++) {
+                out[offset++] = items[i];
+                items[i] = null;
+            }
+            head = tail = 0;
+            return offset;
+        }
+
+        void clear() {
+            Arrays.fill(items, head, tail, null);
+            head = tail = 0;
+        }
+    }
+}
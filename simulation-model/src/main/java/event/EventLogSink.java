@@ -0,0 +1,19 @@
+package event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在内存中保留全部非 MOVE_STEP 事件的订阅者 (原引擎内置的事件日志)，供后置校验、KPI 分析与日志输出。
+ * 内存随仿真时长线性增长，长时间运行应改用流式订阅者。
+ */
+public class EventLogSink implements EventSink {
+    private final List<SimEvent> events = new ArrayList<>();
+
+    @Override
+    public void onEvent(SimEvent event) {
+        if (event.getType() != EventType.MOVE_STEP) events.add(event.isPooled() ? event.copy() : event);
+    }
+
+    public List<SimEvent> getEvents() { return events; }
+}
@@ -0,0 +1,25 @@
+package event;
+
+import java.util.Comparator;
+
+/**
+ * 待处理事件队列。出队顺序为时间戳升序，同一时间戳按入队先后 (FIFO)：
+ * 实现须在 add 时调用 SimEvent.setSequence 分配单调递增序号，并按 ORDER 出队，保证同配置下运行结果可复现。
+ */
+public interface EventQueue {
+    Comparator<SimEvent> ORDER = Comparator.comparingLong(SimEvent::getTimestamp).thenComparingLong(SimEvent::getSequence);
+
+    void add(SimEvent event);
+
+    /** 取出最早的事件，队列为空时返回 null */
+    SimEvent poll();
+
+    /** 查看最早的事件但不取出，队列为空时返回 null */
+    SimEvent peek();
+
+    int size();
+
+    default boolean isEmpty() { return size() == 0; }
+
+    void clear();
+}
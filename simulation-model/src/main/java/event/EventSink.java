@@ -0,0 +1,14 @@
+package event;
+
+/**
+ * 事件订阅者：引擎按全局处理顺序 (时间戳, 入队序号) 逐个推送已处理的事件，包括高频的 MOVE_STEP。
+ * 推送的事件可能来自对象池，回调返回后即被复用，需保留时须先 copy。
+ * 回调在引擎线程上同步执行，耗时操作应自行转交其他线程。
+ */
+@FunctionalInterface
+public interface EventSink {
+    void onEvent(SimEvent event);
+
+    /** 运行结束 (start 返回前) 时调用，可用于刷新缓冲、关闭文件 */
+    default void onFinish(long simTime) {}
+}
@@ -0,0 +1,22 @@
+package event;
+
+import java.util.PriorityQueue;
+
+/**
+ * 二叉堆事件队列 (java.util.PriorityQueue)：入队/出队 O(log n)，对时间分布没有假设，为默认实现。
+ */
+public class HeapEventQueue implements EventQueue {
+    private final PriorityQueue<SimEvent> heap = new PriorityQueue<>(ORDER);
+    private long nextSequence;
+
+    @Override
+    public void add(SimEvent event) {
+        event.setSequence(nextSequence++);
+        heap.add(event);
+    }
+
+    @Override public SimEvent poll() { return heap.poll(); }
+    @Override public SimEvent peek() { return heap.peek(); }
+    @Override public int size() { return heap.size(); }
+    @Override public void clear() { heap.clear(); }
+}
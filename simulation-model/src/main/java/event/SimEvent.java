@@ -1,12 +1,22 @@
 package event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import map.Location;
+
 public class SimEvent implements Comparable<SimEvent> {
+    public static final long NO_POSITION = Long.MIN_VALUE;
+
     private long timestamp;      // 事件发生时间
     private EventType type;      // 事件类型
     private String entityId;     // 相关设备ID
     private String instructionId; // 相关指令ID
-    private String targetPosition; // 目标位置（针对到达事件）
+    // 目标位置（针对到达事件），以 Location.pack 打包的 x/y 存放，仅在输出 JSON 时转为 "x_y" 字符串
+    private long targetPosition = NO_POSITION;
     private Object data;         // 其他数据
+    private long sequence;       // 入队序号，由 EventQueue 分配，用于同一时间戳的 FIFO 排序
+    // 由 SimEventPool 创建 / 当前在池中空闲
+    boolean pooled;
+    boolean released;
 
     public SimEvent(long timestamp, EventType type, String entityId) {
         this.timestamp = timestamp;
@@ -19,9 +29,37 @@ public class SimEvent implements Comparable<SimEvent> {
         this.instructionId = instructionId;
     }
 
-    public SimEvent(long timestamp, EventType type, String entityId, String instructionId, String targetPosition) {
+    public SimEvent(long timestamp, EventType type, String entityId, String instructionId, long packedPosition) {
         this(timestamp, type, entityId, instructionId);
-        this.targetPosition = targetPosition;
+        this.targetPosition = packedPosition;
+    }
+
+    public SimEvent(long timestamp, EventType type, String entityId, String instructionId, String targetPosition) {
+        this(timestamp, type, entityId, instructionId, packPosition(targetPosition));
+    }
+
+    /** 非池化副本，供需要在分发后保留的场合 (如事件日志) 使用 */
+    public SimEvent copy() {
+        SimEvent e = new SimEvent(timestamp, type, entityId, instructionId, targetPosition);
+        e.sequence = sequence;
+        e.data = data;
+        return e;
+    }
+
+    @JsonIgnore
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    void reset(long timestamp, EventType type, String entityId, String instructionId, long packedPosition) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.entityId = entityId;
+        this.instructionId = instructionId;
+        this.targetPosition = packedPosition;
+        this.data = null;
+        this.sequence = 0;
+        this.released = false;
     }
 
     // Getters and Setters
@@ -58,11 +96,40 @@ public class SimEvent implements Comparable<SimEvent> {
     }
 
     public String getTargetPosition() {
-        return targetPosition;
+        return hasTargetPosition() ? Location.unpackX(targetPosition) + "_" + Location.unpackY(targetPosition) : null;
     }
 
     public void setTargetPosition(String targetPosition) {
-        this.targetPosition = targetPosition;
+        this.targetPosition = packPosition(targetPosition);
+    }
+
+    // "x_y" -> 打包坐标；无法解析时为 NO_POSITION
+    private static long packPosition(String targetPosition) {
+        Location loc = Location.parse(targetPosition);
+        return (loc != null) ? loc.pack() : NO_POSITION;
+    }
+
+    @JsonIgnore
+    public long getPackedTargetPosition() {
+        return targetPosition;
+    }
+
+    public void setPackedTargetPosition(long packedPosition) {
+        this.targetPosition = packedPosition;
+    }
+
+    @JsonIgnore
+    public boolean hasTargetPosition() {
+        return targetPosition != NO_POSITION;
+    }
+
+    @JsonIgnore
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
     }
 
     public Object getData() {
@@ -75,7 +142,8 @@ public class SimEvent implements Comparable<SimEvent> {
 
     @Override
     public int compareTo(SimEvent other) {
-        return Long.compare(this.timestamp, other.timestamp);
+        int c = Long.compare(this.timestamp, other.timestamp);
+        return c != 0 ? c : Long.compare(this.sequence, other.sequence);
     }
 
     @Override
@@ -83,6 +151,6 @@ public class SimEvent implements Comparable<SimEvent> {
         return String.format("事件[时间:%d, 类型:%s, 设备:%s, 指令:%s, 目标:%s]",
                 timestamp, type.getChineseName(), entityId,
                 instructionId != null ? instructionId : "无",
-                targetPosition != null ? targetPosition : "无");
+                hasTargetPosition() ? getTargetPosition() : "无");
     }
 }
@@ -0,0 +1,56 @@
+package event;
+
+/**
+ * SimEvent 对象池：调度器从池中取事件，引擎分发完毕后归还，稳态下 MOVE_STEP 等高频事件不再逐个分配。
+ * 池中事件在归还后会被复用，任何需要在分发之后保留的事件 (如写入日志) 必须先 copy 出非池化副本。
+ * 空闲事件数有上限，超出部分交给 GC。非线程安全，与调度器同线程使用。
+ */
+public final class SimEventPool {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final SimEvent[] free;
+    private int count;
+    private long created;
+    private long reused;
+
+    public SimEventPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SimEventPool(int capacity) {
+        this.free = new SimEvent[Math.max(1, capacity)];
+    }
+
+    public SimEvent obtain(long timestamp, EventType type, String entityId, String instructionId, long packedPosition) {
+        if (count == 0) {
+            created++;
+            SimEvent e = new SimEvent(timestamp, type, entityId, instructionId, packedPosition);
+            e.pooled = true;
+            return e;
+        }
+        reused++;
+        SimEvent e = free[--count];
+        free[count] = null;
+        e.reset(timestamp, type, entityId, instructionId, packedPosition);
+        return e;
+    }
+
+    /** 归还事件；非池化事件、已归还的事件或池满时忽略 */
+    public void release(SimEvent event) {
+        if (event == null || !event.pooled || event.released || count == free.length) return;
+        event.reset(0, null, null, null, SimEvent.NO_POSITION);
+        event.released = true;
+        free[count++] = event;
+    }
+
+    public long getCreated() { return created; }
+    public long getReused() { return reused; }
+    public int getIdle() { return count; }
+
+    @Override
+    public String toString() {
+        long total = created + reused;
+        return String.format("事件池[新建:%d, 复用:%d, 复用率:%.1f%%, 空闲:%d]",
+                created, reused, total == 0 ? 0.0 : reused * 100.0 / total, count);
+    }
+}
@@ -0,0 +1,9 @@
+package map;
+
+/**
+ * 格子可通行性变化监听器，供路径缓存、增量规划等在地图运行时变更后失效/修复其状态
+ */
+@FunctionalInterface
+public interface CellChangeListener {
+    void onCellChanged(int x, int y, boolean walkable);
+}
@@ -1,49 +1,216 @@
 package map;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * 栅格地图。通行状态为行优先位图 (每格 1 bit)，格子索引 = y * width + x；
+ * 节点 ID 与类型只存在于注册节点上，存放在以格子索引为键的开放寻址表中，类型以序号表示 (序号 0 为 UNKNOWN)。
+ * 同时提供 Location 与 int 格子索引两套访问接口。
+ */
 public class GridMap {
+    public static final String UNKNOWN_TYPE = "UNKNOWN";
+
     private final int width;
     private final int height;
     private final double cellSize;
 
-    private final Map<String, Location> idToLoc = new HashMap<>();
-    private final Map<Location, String> locToId = new HashMap<>();
-    private final Map<Location, String> locToType = new HashMap<>();
+    private final Map<String, Location> idToLoc = new LinkedHashMap<>();
     private final Map<String, List<String>> typeToIds = new HashMap<>();
 
-    private final boolean[][] walkable;
+    // 类型序号表
+    private final List<String> typeNames = new ArrayList<>(List.of(UNKNOWN_TYPE));
+    private final Map<String, Integer> typeOrdinals = new HashMap<>(Map.of(UNKNOWN_TYPE, 0));
+
+    // 节点属性表 (开放寻址，线性探测)
+    private int[] nodeKeys = newKeys(16);
+    private String[] nodeIds = new String[16];
+    private byte[] nodeTypes = new byte[16];
+    private int nodeEntries;
+
+    private final long[] walkable;
+    // 享元坐标：按行懒分配，同一格子始终返回同一个 Location 实例
+    private final Location[][] locationRows;
+    private final List<CellChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private RoadGraph roadGraph;
 
     public GridMap(int width, int height, double cellSize) {
         this.width = width;
         this.height = height;
         this.cellSize = cellSize;
-        this.walkable = new boolean[width][height];
+        this.walkable = new long[(int) (((long) width * height + 63) >>> 6)];
+        this.locationRows = new Location[height][];
     }
 
     public void registerNode(String nodeId, String type, Location loc) {
         idToLoc.put(nodeId, loc);
-        locToId.put(loc, nodeId);
+        if (!isValid(loc.x(), loc.y())) return;
+        int slot = nodeSlot(cellIndex(loc.x(), loc.y()));
+        nodeIds[slot] = nodeId;
         if (type != null) {
-            locToType.put(loc, type);
+            nodeTypes[slot] = (byte) typeOrdinal(type);
             typeToIds.computeIfAbsent(type, k -> new ArrayList<>()).add(nodeId);
         }
     }
 
     public Location getNodeLocation(String nodeId) { return idToLoc.get(nodeId); }
-    public String getNodeId(Location loc) { return locToId.get(loc); }
-    public String getLocationType(Location loc) { return locToType.getOrDefault(loc, "UNKNOWN"); }
+    public String getNodeId(Location loc) {
+        return loc != null && isValid(loc.x(), loc.y()) ? getNodeId(cellIndex(loc.x(), loc.y())) : null;
+    }
+    public String getLocationType(Location loc) {
+        return loc != null && isValid(loc.x(), loc.y()) ? getLocationType(cellIndex(loc.x(), loc.y())) : UNKNOWN_TYPE;
+    }
     public List<String> getNodesByType(String type) { return typeToIds.getOrDefault(type, Collections.emptyList()); }
+    /** 按注册顺序返回全部节点ID */
+    public List<String> getNodeIds() { return List.copyOf(idToLoc.keySet()); }
+
+    // --- 格子索引接口 ---
+
+    public String getNodeId(int cell) {
+        int slot = findNode(cell);
+        return nodeKeys[slot] == cell ? nodeIds[slot] : null;
+    }
+
+    public String getLocationType(int cell) { return typeNames.get(getCellType(cell)); }
+
+    /** 格子的类型序号，非节点格为 0 (UNKNOWN) */
+    public int getCellType(int cell) {
+        int slot = findNode(cell);
+        return nodeKeys[slot] == cell ? nodeTypes[slot] : 0;
+    }
+
+    public String getTypeName(int ordinal) { return typeNames.get(ordinal); }
+
+    /** 类型名对应的序号，未出现过的类型返回 -1 */
+    public int getTypeOrdinal(String type) { return typeOrdinals.getOrDefault(type, -1); }
+
+    /**
+     * 返回 (x, y) 的共享 Location 实例，越界坐标返回新实例。
+     * 分区并行时可能被多线程调用，竞争下同一格偶尔得到两个等值实例 (Location 不可变，按值比较，无影响)
+     */
+    public Location location(int x, int y) {
+        if (!isValid(x, y)) return new Location(x, y);
+        Location[] row = locationRows[y];
+        if (row == null) {
+            row = new Location[width];
+            locationRows[y] = row;
+        }
+        Location loc = row[x];
+        if (loc == null) {
+            loc = new Location(x, y);
+            row[x] = loc;
+        }
+        return loc;
+    }
+
+    public Location location(int cell) { return location(cell % width, cell / width); }
+
+    public boolean isWalkable(int cell) {
+        return cell >= 0 && cell < getCellCount() && (walkable[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public void setWalkable(int cell, boolean isWalkable) { setWalkable(cell % width, cell / width, isWalkable); }
+
+    /** 加载器保留的路段拓扑，未提供路段时为 null */
+    public RoadGraph getRoadGraph() { return roadGraph; }
+    public void setRoadGraph(RoadGraph roadGraph) { this.roadGraph = roadGraph; }
 
     public void setWalkable(int x, int y, boolean isWalkable) {
-        if (isValid(x, y)) this.walkable[x][y] = isWalkable;
+        if (!isValid(x, y) || isWalkable(x, y) == isWalkable) return;
+        int cell = cellIndex(x, y);
+        if (isWalkable) walkable[cell >>> 6] |= 1L << cell;
+        else walkable[cell >>> 6] &= ~(1L << cell);
+        for (CellChangeListener l : listeners) l.onCellChanged(x, y, isWalkable);
     }
 
-    public boolean isWalkable(int x, int y) { return isValid(x, y) && walkable[x][y]; }
-    private boolean isValid(int x, int y) { return x >= 0 && x < width && y >= 0 && y < height; }
+    /**
+     * 运行时批量修改矩形区域 [x0, x1] x [y0, y1] 的通行状态 (如封闭车道、堆场区块)，坐标含端点且会裁剪到地图范围内
+     * @return 实际发生变化的格子数
+     */
+    public int setWalkableArea(int x0, int y0, int x1, int y1, boolean isWalkable) {
+        int changed = 0;
+        for (int y = Math.max(0, Math.min(y0, y1)); y <= Math.min(height - 1, Math.max(y0, y1)); y++) {
+            for (int x = Math.max(0, Math.min(x0, x1)); x <= Math.min(width - 1, Math.max(x0, x1)); x++) {
+                if (isWalkable(x, y) == isWalkable) continue;
+                setWalkable(x, y, isWalkable);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    public void addCellChangeListener(CellChangeListener listener) { listeners.add(listener); }
+    public void removeCellChangeListener(CellChangeListener listener) { listeners.remove(listener); }
+
+    public boolean isWalkable(int x, int y) {
+        if (!isValid(x, y)) return false;
+        int cell = y * width + x;
+        return (walkable[cell >>> 6] & (1L << cell)) != 0;
+    }
+    public boolean isValid(int x, int y) { return x >= 0 && x < width && y >= 0 && y < height; }
     public double getCellSize() { return cellSize; }
-}
\ No newline at end of file
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // 行优先的扁平格子索引，供算法层使用原始数组
+    public int cellIndex(int x, int y) { return y * width + x; }
+    public int getCellCount() { return width * height; }
+
+    // --- 内部 ---
+
+    private int typeOrdinal(String type) {
+        Integer ordinal = typeOrdinals.get(type);
+        if (ordinal != null) return ordinal;
+        if (typeNames.size() > Byte.MAX_VALUE) throw new IllegalStateException("节点类型过多: " + type);
+        typeNames.add(type);
+        typeOrdinals.put(type, typeNames.size() - 1);
+        return typeNames.size() - 1;
+    }
+
+    // 返回该格的表项槽位，不存在则插入
+    private int nodeSlot(int cell) {
+        if ((nodeEntries + 1) * 2 > nodeKeys.length) growNodes();
+        int slot = findNode(cell);
+        if (nodeKeys[slot] != cell) {
+            nodeKeys[slot] = cell;
+            nodeEntries++;
+        }
+        return slot;
+    }
+
+    private int findNode(int cell) {
+        int mask = nodeKeys.length - 1;
+        int h = cell * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (nodeKeys[slot] != -1 && nodeKeys[slot] != cell) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void growNodes() {
+        int[] oldKeys = nodeKeys;
+        String[] oldIds = nodeIds;
+        byte[] oldTypes = nodeTypes;
+        nodeKeys = newKeys(oldKeys.length * 2);
+        nodeIds = new String[nodeKeys.length];
+        nodeTypes = new byte[nodeKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == -1) continue;
+            int slot = findNode(oldKeys[i]);
+            nodeKeys[slot] = oldKeys[i];
+            nodeIds[slot] = oldIds[i];
+            nodeTypes[slot] = oldTypes[i];
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, -1);
+        return keys;
+    }
+}
@@ -14,5 +14,11 @@ public record Location(int x, int y) {
     @JsonValue
     public String toKey() { return x + "_" + y; }
 
+    // 打包为 long (高 32 位 x，低 32 位 y)，供事件等热路径代替字符串键
+    public long pack() { return pack(x, y); }
+    public static long pack(int x, int y) { return ((long) x << 32) | (y & 0xFFFFFFFFL); }
+    public static int unpackX(long packed) { return (int) (packed >> 32); }
+    public static int unpackY(long packed) { return (int) packed; }
+
     @Override public String toString() { return "(" + x + "," + y + ")"; }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * 节点间最短路距离矩阵：启动时从每个注册节点并行做一次栅格 BFS，
+ * 将两两距离 (格数，与 RoutePlanner 返回的路径长度一致) 存入扁平 int 数组，查询为 O(1)。
+ * 可选保留每个节点到全图格子的距离场，作为以该节点为终点的精确启发函数。
+ * 矩阵是构建时刻的地图快照；运行时封路只会让真实距离变长，距离场作为启发值仍是可采纳的；
+ * 一旦有格子重新开放，距离场可能高估，注册为 CellChangeListener 后会自动停用距离场。
+ */
+public final class NodeDistanceMatrix implements CellChangeListener {
+    public static final int UNREACHABLE = -1;
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final String[] nodeIds;
+    private final int[] nodeCells;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<Integer, Integer> cellToOrdinal = new HashMap<>();
+    private final int[] matrix;
+    private final int[][] fields;
+    private volatile boolean fieldsAdmissible = true;
+    private volatile boolean stale;
+
+    private NodeDistanceMatrix(String[] nodeIds, int[] nodeCells, int[] matrix, int[][] fields) {
+        this.nodeIds = nodeIds;
+        this.nodeCells = nodeCells;
+        this.matrix = matrix;
+        this.fields = fields;
+        for (int i = 0; i < nodeIds.length; i++) {
+            ordinals.put(nodeIds[i], i);
+            cellToOrdinal.putIfAbsent(nodeCells[i], i);
+        }
+    }
+
+    /**
+     * @param retainFields 是否保留每个节点的全图距离场 (内存 = 节点数 * 格子数 * 4 字节)
+     */
+    public static NodeDistanceMatrix build(GridMap map, boolean retainFields) {
+        List<String> ids = map.getNodeIds();
+        int n = ids.size();
+        String[] nodeIds = ids.toArray(new String[0]);
+        int[] nodeCells = new int[n];
+        for (int i = 0; i < n; i++) {
+            Location loc = map.getNodeLocation(nodeIds[i]);
+            nodeCells[i] = map.cellIndex(loc.x(), loc.y());
+        }
+
+        int[] matrix = new int[n * n];
+        int[][] fields = retainFields ? new int[n][] : null;
+        int cells = map.getCellCount();
+        int chunks = Math.min(n, Runtime.getRuntime().availableProcessors() * 4);
+
+        // 每个源节点的 BFS 相互独立，按行分块并行填充矩阵；
+        // 队列与距离缓冲在块内分配、块结束即可回收，不挂在公共线程池的工作线程上
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int[] queue = new int[cells];
+            int[] scratch = retainFields ? null : new int[cells];
+            for (int src = chunk; src < n; src += chunks) {
+                int[] dist = retainFields ? new int[cells] : scratch;
+                bfs(map, nodeCells[src], dist, queue);
+                for (int dst = 0; dst < n; dst++) matrix[src * n + dst] = dist[nodeCells[dst]];
+                if (retainFields) fields[src] = dist;
+            }
+        });
+        return new NodeDistanceMatrix(nodeIds, nodeCells, matrix, fields);
+    }
+
+    private static void bfs(GridMap map, int source, int[] dist, int[] queue) {
+        Arrays.fill(dist, UNREACHABLE);
+        int w = map.getWidth();
+        int head = 0, tail = 0;
+        dist[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cur = queue[head++];
+            int cx = cur % w, cy = cur / w;
+            int nd = dist[cur] + 1;
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (!map.isWalkable(nx, ny)) continue;
+                int next = cur + DX[d] + DY[d] * w;
+                if (dist[next] == UNREACHABLE) {
+                    dist[next] = nd;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    public int size() { return nodeIds.length; }
+    public String nodeId(int ordinal) { return nodeIds[ordinal]; }
+    public int indexOf(String nodeId) { return ordinals.getOrDefault(nodeId, -1); }
+    /** 位于该格子上的节点序号，非节点格子返回 -1 */
+    public int nodeAtCell(int cellIndex) { return cellToOrdinal.getOrDefault(cellIndex, -1); }
+
+    public int distance(int from, int to) { return matrix[from * nodeIds.length + to]; }
+
+    public int distance(String fromNode, String toNode) {
+        int a = indexOf(fromNode), b = indexOf(toNode);
+        if (a < 0 || b < 0) return UNREACHABLE;
+        return distance(a, b);
+    }
+
+    public boolean hasDistanceFields() { return fields != null && fieldsAdmissible; }
+
+    /** 构建后地图是否发生过变化 (矩阵距离可能已不准确) */
+    public boolean isStale() { return stale; }
+
+    @Override
+    public void onCellChanged(int x, int y, boolean walkable) {
+        stale = true;
+        if (walkable) fieldsAdmissible = false;
+    }
+
+    /**
+     * 指定节点到全图格子的距离场 (只读使用)，未保留时返回 null。
+     * 4 连通栅格上距离对称，因此同时也是各格子到该节点的精确剩余距离。
+     */
+    public int[] distanceField(int ordinal) { return hasDistanceFields() ? fields[ordinal] : null; }
+
+    public long reachablePairs() {
+        long count = 0;
+        for (int d : matrix) if (d != UNREACHABLE) count++;
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("节点距离矩阵[节点:%d, 可达对:%d/%d, 距离场:%s]",
+                nodeIds.length, reachablePairs(), (long) nodeIds.length * nodeIds.length,
+                fields == null ? "未保留" : (fieldsAdmissible ? "已保留" : "已停用"));
+    }
+}
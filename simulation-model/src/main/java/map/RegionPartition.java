@@ -0,0 +1,53 @@
+package map;
+
+/**
+ * 把地图按矩形网格切分为若干区域 (行列数取接近正方形的分解)，供分区并行仿真确定事件归属。
+ * 区域编号按行优先，从 0 开始。
+ */
+public final class RegionPartition {
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    public RegionPartition(GridMap gridMap, int regions) {
+        this.width = gridMap.getWidth();
+        this.height = gridMap.getHeight();
+        int n = Math.max(1, regions);
+        // 行列数取最接近 sqrt(n) 且能整除的分解，较长的一边分得更多
+        int a = (int) Math.sqrt(n);
+        while (n % a != 0) a--;
+        int b = n / a;
+        this.columns = Math.min(width >= height ? b : a, Math.max(1, width));
+        this.rows = Math.min(width >= height ? a : b, Math.max(1, height));
+        this.tileWidth = (width + columns - 1) / columns;
+        this.tileHeight = (height + rows - 1) / rows;
+    }
+
+    public int regionCount() { return columns * rows; }
+
+    public int regionOf(int x, int y) {
+        int cx = Math.min(columns - 1, Math.max(0, x) / tileWidth);
+        int cy = Math.min(rows - 1, Math.max(0, y) / tileHeight);
+        return cy * columns + cx;
+    }
+
+    public int regionOf(long packed) { return regionOf(Location.unpackX(packed), Location.unpackY(packed)); }
+
+    /**
+     * 以 (x, y) 为中心、半径 margin 的方形范围 (裁剪到地图内) 是否完全落在同一区域内
+     */
+    public boolean isInterior(int x, int y, int margin) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        int x0 = Math.max(0, x - margin), x1 = Math.min(width - 1, x + margin);
+        int y0 = Math.max(0, y - margin), y1 = Math.min(height - 1, y + margin);
+        return x0 / tileWidth == x1 / tileWidth && y0 / tileHeight == y1 / tileHeight;
+    }
+
+    @Override
+    public String toString() {
+        return "区域划分[" + columns + "x" + rows + ", 区块:" + tileWidth + "x" + tileHeight + "]";
+    }
+}
@@ -0,0 +1,132 @@
+package map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 地图路段拓扑的压缩邻接 (CSR) 表示：节点 i 的出边为 [offsets[i], offsets[i+1])。
+ * 路段须栅格化为 4 邻接的格子序列，边权为其步数 (与逐格移动耗时一致)，每条有向边保留其经过的格子 (不含起点、含终点)，
+ * 供图上规划出的路径按需展开为逐格路径。双向路段存为两条有向边，单行路段只存一条。
+ */
+public final class RoadGraph {
+    private final GridMap gridMap;
+    private final String[] nodeIds;
+    private final int[] nodeCells;
+    private final Map<String, Integer> idToIndex;
+    private final Map<Integer, Integer> cellToIndex;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[][] edgeCells;
+
+    private RoadGraph(GridMap gridMap, String[] nodeIds, int[] nodeCells, Map<String, Integer> idToIndex,
+                      Map<Integer, Integer> cellToIndex, int[] offsets, int[] targets, int[] weights, int[][] edgeCells) {
+        this.gridMap = gridMap;
+        this.nodeIds = nodeIds;
+        this.nodeCells = nodeCells;
+        this.idToIndex = idToIndex;
+        this.cellToIndex = cellToIndex;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeCells = edgeCells;
+    }
+
+    public int nodeCount() { return nodeIds.length; }
+    public int edgeCount() { return targets.length; }
+
+    public String nodeId(int node) { return nodeIds[node]; }
+    public int nodeCell(int node) { return nodeCells[node]; }
+    public int indexOf(String nodeId) { return idToIndex.getOrDefault(nodeId, -1); }
+
+    /** 位于该格的节点序号，非节点格返回 -1 */
+    public int nodeAt(Location loc) {
+        if (loc == null || loc.x() < 0 || loc.y() < 0 || loc.x() >= gridMap.getWidth() || loc.y() >= gridMap.getHeight()) return -1;
+        return cellToIndex.getOrDefault(gridMap.cellIndex(loc.x(), loc.y()), -1);
+    }
+
+    public int firstEdge(int node) { return offsets[node]; }
+    public int endEdge(int node) { return offsets[node + 1]; }
+    public int edgeTarget(int edge) { return targets[edge]; }
+    public int edgeWeight(int edge) { return weights[edge]; }
+
+    /** 有向边经过的格子索引 (不含起点、含终点)，调用方不得修改 */
+    public int[] edgeCells(int edge) { return edgeCells[edge]; }
+
+    @Override
+    public String toString() {
+        return "路网图[节点:" + nodeCount() + ", 有向边:" + edgeCount() + "]";
+    }
+
+    public static Builder builder(GridMap gridMap) { return new Builder(gridMap); }
+
+    public static final class Builder {
+        private record Edge(int from, int to, int[] cells) {}
+
+        private final GridMap gridMap;
+        private final List<String> nodeIds;
+        private final Map<String, Integer> idToIndex = new HashMap<>();
+        private final List<Edge> edges = new ArrayList<>();
+
+        private Builder(GridMap gridMap) {
+            this.gridMap = gridMap;
+            this.nodeIds = gridMap.getNodeIds();
+            for (int i = 0; i < nodeIds.size(); i++) idToIndex.put(nodeIds.get(i), i);
+        }
+
+        /**
+         * @param cells 从起点到终点栅格化的格子索引序列 (含两端)，相邻两格须 4 邻接，
+         *              否则逐格移动的耗时与边权不一致，且对角步会穿过未标记的拐角格
+         */
+        public Builder addSegment(String fromId, String toId, int[] cells, boolean oneWay) {
+            Integer from = idToIndex.get(fromId), to = idToIndex.get(toId);
+            if (from == null || to == null || cells.length == 0) return this;
+            int w = gridMap.getWidth();
+            for (int i = 1; i < cells.length; i++) {
+                if (Math.abs(cells[i] % w - cells[i - 1] % w) + Math.abs(cells[i] / w - cells[i - 1] / w) != 1) {
+                    throw new IllegalArgumentException("路段 " + fromId + "->" + toId + " 的格子序列不是 4 邻接的");
+                }
+            }
+            edges.add(new Edge(from, to, Arrays.copyOfRange(cells, 1, cells.length)));
+            if (!oneWay) {
+                int[] reverse = new int[cells.length - 1];
+                for (int i = 0; i < reverse.length; i++) reverse[i] = cells[cells.length - 2 - i];
+                edges.add(new Edge(to, from, reverse));
+            }
+            return this;
+        }
+
+        public RoadGraph build() {
+            int n = nodeIds.size();
+            String[] ids = nodeIds.toArray(new String[0]);
+            int[] nodeCells = new int[n];
+            Map<Integer, Integer> cellToIndex = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Location loc = gridMap.getNodeLocation(ids[i]);
+                nodeCells[i] = gridMap.cellIndex(loc.x(), loc.y());
+                cellToIndex.putIfAbsent(nodeCells[i], i);
+            }
+
+            // 计数排序按起点分组
+            int[] offsets = new int[n + 1];
+            for (Edge e : edges) offsets[e.from() + 1]++;
+            for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edges.size()];
+            int[] weights = new int[edges.size()];
+            int[][] cells = new int[edges.size()][];
+            for (Edge e : edges) {
+                int slot = fill[e.from()]++;
+                targets[slot] = e.to();
+                weights[slot] = e.cells().length;
+                cells[slot] = e.cells();
+            }
+            return new RoadGraph(gridMap, ids, nodeCells, Map.copyOf(idToIndex), cellToIndex,
+                    offsets, targets, weights, cells);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package map;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑的只读逐格路径：以 int[] 存放行优先格子索引，每步 4 字节，不为每格创建 Location/链表节点。
+ * get 返回 GridMap 的享元 Location；实体只持有读游标 (见 Entity.popNextStep)，路径本身可被多个实体共享。
+ */
+public final class RoutePath extends AbstractList<Location> implements RandomAccess {
+    private final GridMap gridMap;
+    private final int[] cells;
+
+    /** cells 由调用方移交所有权，之后不得再修改 */
+    public RoutePath(GridMap gridMap, int[] cells) {
+        this.gridMap = gridMap;
+        this.cells = cells;
+    }
+
+    @Override
+    public Location get(int index) { return gridMap.location(cells[index]); }
+
+    @Override
+    public int size() { return cells.length; }
+
+    public int cellAt(int index) { return cells[index]; }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Location loc)) return -1;
+        if (loc.x() < 0 || loc.y() < 0 || loc.x() >= gridMap.getWidth() || loc.y() >= gridMap.getHeight()) return -1;
+        int cell = gridMap.cellIndex(loc.x(), loc.y());
+        for (int i = 0; i < cells.length; i++) if (cells[i] == cell) return i;
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) { return indexOf(o) >= 0; }
+}
@@ -0,0 +1,76 @@
+package event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalendarEventQueueTest {
+
+    @Test
+    void repeatedTimestampsDequeueInHeapOrder() {
+        // 间隔只有 1000 / 10000 两种，大量事件同刻
+        Random random = new Random(7);
+        CalendarEventQueue calendar = hold(50_000, 200_000, () -> random.nextInt(10) == 0 ? 10_000 : 1000);
+        assertTrue(calendar.getResizeCount() > 0);
+        // 最小正间隔为 1000，桶宽不应再因零间隔塌缩到 1
+        assertTrue(calendar.getBucketWidth() >= 1000, calendar.toString());
+    }
+
+    @Test
+    void denseTiesKeepWidthAboveMinimumGap() {
+        Random random = new Random(11);
+        CalendarEventQueue calendar = hold(20_000, 100_000, () -> 500 + 10L * random.nextInt(100));
+        assertTrue(calendar.getBucketWidth() >= 10, calendar.toString());
+    }
+
+    @Test
+    void singleTimestampKeepsInitialWidth() {
+        CalendarEventQueue calendar = new CalendarEventQueue(16, 250);
+        HeapEventQueue heap = new HeapEventQueue();
+        for (int i = 0; i < 1000; i++) {
+            calendar.add(new SimEvent(5000, EventType.MOVE_STEP, "E" + i));
+            heap.add(new SimEvent(5000, EventType.MOVE_STEP, "E" + i));
+        }
+        assertEquals(250, calendar.getBucketWidth());
+        drainAndCompare(calendar, heap);
+    }
+
+    // hold 模型：每次取出最早事件并在其后按间隔分布插入新事件，逐个比较两种队列的出队顺序
+    private static CalendarEventQueue hold(int n, int holds, LongSupplier increment) {
+        CalendarEventQueue calendar = new CalendarEventQueue();
+        HeapEventQueue heap = new HeapEventQueue();
+        int id = 0;
+        for (int i = 0; i < n; i++, id++) {
+            long ts = increment.getAsLong();
+            calendar.add(new SimEvent(ts, EventType.MOVE_STEP, "E" + id));
+            heap.add(new SimEvent(ts, EventType.MOVE_STEP, "E" + id));
+        }
+        for (int i = 0; i < holds; i++, id++) {
+            SimEvent expected = heap.poll();
+            SimEvent actual = calendar.poll();
+            assertSameEvent(expected, actual);
+            long ts = expected.getTimestamp() + increment.getAsLong();
+            calendar.add(new SimEvent(ts, EventType.MOVE_STEP, "E" + id));
+            heap.add(new SimEvent(ts, EventType.MOVE_STEP, "E" + id));
+        }
+        drainAndCompare(calendar, heap);
+        return calendar;
+    }
+
+    private static void drainAndCompare(CalendarEventQueue calendar, HeapEventQueue heap) {
+        while (heap.size() > 0) assertSameEvent(heap.poll(), calendar.poll());
+        assertNull(calendar.poll());
+        assertEquals(0, calendar.size());
+    }
+
+    private static void assertSameEvent(SimEvent expected, SimEvent actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getEntityId(), actual.getEntityId());
+    }
+}
@@ -1,15 +1,21 @@
 package physics;
 
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import checkpoint.Checkpointable;
 import Instruction.Instruction;
 import map.GridMap;
 import map.Location;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
-public class PhysicsEngine {
+public class PhysicsEngine implements Checkpointable {
     private final GridMap gridMap;
     private final ConcurrentHashMap<Location, Set<String>> cellLocks = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Set<Location>> entityAllocations = new ConcurrentHashMap<>();
+    private final ReservationTable reservations = new ReservationTable();
 
     public PhysicsEngine(GridMap gridMap) {
         this.gridMap = gridMap;
@@ -61,6 +67,84 @@ public class PhysicsEngine {
         return occupiers.stream().anyMatch(occ -> !occ.equals(selfId));
     }
 
+    public ReservationTable getReservations() { return reservations; }
+
+    /**
+     * 该格是否被未持有时空预约的设备占用 (如停驻的吊机)，此类占用对协同规划视为静态障碍
+     * @param exempt 豁免的设备 (如终点处的协同伙伴)，可为 null
+     */
+    public boolean isStaticallyBlocked(Location loc, String selfId, Collection<String> exempt) {
+        Set<String> occupiers = cellLocks.get(loc);
+        if (occupiers == null || occupiers.isEmpty()) return false;
+        for (String occ : occupiers) {
+            if (occ.equals(selfId) || (exempt != null && exempt.contains(occ))) continue;
+            if (!reservations.hasReservations(occ)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 以该格为中心、半径 radius 的方形范围内没有其他设备占用 (且该格可通行)，即附近无竞争，可整段占用连续前进
+     */
+    public boolean isUncontested(Location loc, String selfId, int radius) {
+        int x = loc.x(), y = loc.y();
+        if (!gridMap.isWalkable(x, y)) return false;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                if (occupiedByOther(gridMap.location(x + dx, y + dy), selfId)) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean occupiedByOther(Location loc, String selfId) {
+        Set<String> occupiers = cellLocks.get(loc);
+        if (occupiers == null || occupiers.isEmpty()) return false;
+        return occupiers.size() > 1 || !occupiers.contains(selfId);
+    }
+
+    // --- 检查点：格子占用、各设备的占用集合与时空预约 ---
+
+    @Override
+    public String checkpointKey() { return "physics"; }
+
+    @Override
+    public synchronized void saveState(CheckpointOutput out) throws IOException {
+        out.writeVarInt(cellLocks.size());
+        for (Map.Entry<Location, Set<String>> e : cellLocks.entrySet()) {
+            out.writeLocation(e.getKey());
+            out.writeVarInt(e.getValue().size());
+            for (String id : e.getValue()) out.writeString(id);
+        }
+        out.writeVarInt(entityAllocations.size());
+        for (Map.Entry<String, Set<Location>> e : entityAllocations.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeVarInt(e.getValue().size());
+            for (Location loc : e.getValue()) out.writeLocation(loc);
+        }
+        reservations.writeTo(out);
+    }
+
+    @Override
+    public synchronized void restoreState(CheckpointInput in, int version,
+                                          Function<String, Instruction> instructions) throws IOException {
+        cellLocks.clear();
+        entityAllocations.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            Location loc = in.readLocation();
+            Set<String> occupiers = ConcurrentHashMap.newKeySet();
+            for (int k = in.readVarInt(); k > 0; k--) occupiers.add(in.readString());
+            cellLocks.put(loc, occupiers);
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String id = in.readString();
+            Set<Location> locations = new HashSet<>();
+            for (int k = in.readVarInt(); k > 0; k--) locations.add(in.readLocation());
+            entityAllocations.put(id, locations);
+        }
+        reservations.readFrom(in);
+    }
+
     public String getOccupier(Location loc) {
         Set<String> occupiers = cellLocks.get(loc);
         return (occupiers != null && !occupiers.isEmpty()) ? occupiers.iterator().next() : null;
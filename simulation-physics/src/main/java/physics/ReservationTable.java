@@ -0,0 +1,139 @@
+package physics;
+
+import checkpoint.CheckpointInput;
+import checkpoint.CheckpointOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 时空预约表：记录各设备对 (格子, 时间区间) 的占用预约，区间为左闭右开 [from, to)。
+ * 协同规划据此避开他车的未来占用；设备前进时释放已过期的预约，重新规划前释放全部预约。
+ * 格子以 GridMap.cellIndex 的扁平索引为键。
+ */
+public class ReservationTable {
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    private static final class Slot {
+        final String owner;
+        final long from;
+        final long to;
+
+        Slot(String owner, long from, long to) {
+            this.owner = owner;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final Map<Integer, List<Slot>> byCell = new HashMap<>();
+    private final Map<String, List<Integer>> byOwner = new HashMap<>();
+
+    public synchronized void reserve(String owner, int cell, long from, long to) {
+        if (to <= from) return;
+        byCell.computeIfAbsent(cell, k -> new ArrayList<>(2)).add(new Slot(owner, from, to));
+        byOwner.computeIfAbsent(owner, k -> new ArrayList<>()).add(cell);
+    }
+
+    /**
+     * 区间 [from, to) 内该格是否未被其他设备预约
+     * @param sharedWith 允许共用该格的设备 (如协同作业伙伴)，可为 null
+     */
+    public synchronized boolean isFree(int cell, long from, long to, String selfId, Collection<String> sharedWith) {
+        List<Slot> slots = byCell.get(cell);
+        if (slots == null) return true;
+        for (Slot s : slots) {
+            if (s.owner.equals(selfId)) continue;
+            if (sharedWith != null && sharedWith.contains(s.owner)) continue;
+            if (s.from < to && from < s.to) return false;
+        }
+        return true;
+    }
+
+    public synchronized boolean hasReservations(String owner) {
+        List<Integer> cells = byOwner.get(owner);
+        return cells != null && !cells.isEmpty();
+    }
+
+    /** 释放该设备在 now 之前已结束的预约 */
+    public synchronized void releaseExpired(String owner, long now) {
+        List<Integer> cells = byOwner.get(owner);
+        if (cells == null) return;
+        Iterator<Integer> it = cells.iterator();
+        while (it.hasNext()) {
+            int cell = it.next();
+            if (removeSlots(cell, owner, now)) it.remove();
+        }
+    }
+
+    public synchronized void releaseAll(String owner) {
+        List<Integer> cells = byOwner.remove(owner);
+        if (cells == null) return;
+        for (int cell : cells) removeSlots(cell, owner, FOREVER);
+    }
+
+    public synchronized int size() {
+        int n = 0;
+        for (List<Slot> slots : byCell.values()) n += slots.size();
+        return n;
+    }
+
+    // 检查点：按格写出预约，再写出各设备的格子列表 (保持原顺序)
+    synchronized void writeTo(CheckpointOutput out) throws IOException {
+        out.writeVarInt(byCell.size());
+        for (Map.Entry<Integer, List<Slot>> e : byCell.entrySet()) {
+            out.writeVarInt(e.getKey());
+            out.writeVarInt(e.getValue().size());
+            for (Slot s : e.getValue()) {
+                out.writeString(s.owner);
+                out.writeLong(s.from);
+                out.writeLong(s.to);
+            }
+        }
+        out.writeVarInt(byOwner.size());
+        for (Map.Entry<String, List<Integer>> e : byOwner.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeVarInt(e.getValue().size());
+            for (int cell : e.getValue()) out.writeVarInt(cell);
+        }
+    }
+
+    synchronized void readFrom(CheckpointInput in) throws IOException {
+        byCell.clear();
+        byOwner.clear();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            int cell = in.readVarInt();
+            int n = in.readVarInt();
+            List<Slot> slots = new ArrayList<>(Math.max(2, n));
+            for (int k = 0; k < n; k++) slots.add(new Slot(in.readString(), in.readLong(), in.readLong()));
+            byCell.put(cell, slots);
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String owner = in.readString();
+            int n = in.readVarInt();
+            List<Integer> cells = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) cells.add(in.readVarInt());
+            byOwner.put(owner, cells);
+        }
+    }
+
+    // 删除该格上属于 owner 且结束时间 <= until 的预约；返回 owner 在该格是否已无剩余预约
+    private boolean removeSlots(int cell, String owner, long until) {
+        List<Slot> slots = byCell.get(cell);
+        if (slots == null) return true;
+        boolean remaining = false;
+        Iterator<Slot> it = slots.iterator();
+        while (it.hasNext()) {
+            Slot s = it.next();
+            if (!s.owner.equals(owner)) continue;
+            if (s.to <= until) it.remove();
+            else remaining = true;
+        }
+        if (slots.isEmpty()) byCell.remove(cell);
+        return !remaining;
+    }
+}